@@ -0,0 +1,72 @@
+package org.azavea.otm.test;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.azavea.otm.images.BitmapPool;
+import org.azavea.otm.images.PhotoDecoder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+
+public class BitmapPoolTest extends OpenTreeMapTestCase {
+
+    public void testReusesReturnedBitmap() {
+        BitmapPool pool = new BitmapPool(10 * 1024 * 1024);
+        Bitmap bitmap = pool.get(100, 50, Bitmap.Config.ARGB_8888);
+        assertEquals(0, pool.getHits());
+        assertEquals(1, pool.getMisses());
+
+        bitmap.eraseColor(Color.RED);
+        pool.put(bitmap);
+        Bitmap reused = pool.get(100, 50, Bitmap.Config.ARGB_8888);
+        assertSame(bitmap, reused);
+        assertEquals(Color.TRANSPARENT, reused.getPixel(0, 0));
+        assertEquals(0.5, pool.getHitRate(), 0.001);
+    }
+
+    public void testRecyclesPastMaxSize() {
+        BitmapPool pool = new BitmapPool(100 * 100 * 4);
+        Bitmap first = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        Bitmap second = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        pool.put(first);
+        pool.put(second);
+
+        assertTrue(first.isRecycled());
+        assertSame(second, pool.get(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testRotatedPhotoReusesPooledBitmap() throws Exception {
+        // A landscape photo, red on the left half and blue on the right
+        Bitmap original = Bitmap.createBitmap(400, 200, Bitmap.Config.ARGB_8888);
+        original.eraseColor(Color.RED);
+        for (int x = 200; x < 400; x++) {
+            for (int y = 0; y < 200; y++) {
+                original.setPixel(x, y, Color.BLUE);
+            }
+        }
+        File file = new File(getInstrumentation().getTargetContext().getCacheDir(), "rotate-test.png");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            original.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+
+        BitmapPool pool = new BitmapPool(10 * 1024 * 1024);
+        pool.put(Bitmap.createBitmap(200, 400, Bitmap.Config.ARGB_8888));
+        try {
+            Bitmap photo = new PhotoDecoder(pool).decode(file.getPath(), 90, 400, 200);
+
+            // Turned clockwise, the left half is now the top
+            assertEquals(200, photo.getWidth());
+            assertEquals(400, photo.getHeight());
+            assertEquals(Color.RED, photo.getPixel(100, 50));
+            assertEquals(Color.BLUE, photo.getPixel(100, 350));
+            assertEquals(1, pool.getHits());
+        } finally {
+            file.delete();
+        }
+    }
+}
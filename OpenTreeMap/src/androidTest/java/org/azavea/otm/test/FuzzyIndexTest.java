@@ -0,0 +1,47 @@
+package org.azavea.otm.test;
+
+import org.azavea.otm.adapters.FuzzyIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+public class FuzzyIndexTest extends OpenTreeMapTestCase {
+    private static final List<String> SPECIES = Arrays.asList(
+            "Red Maple Acer rubrum",
+            "Sugar Maple Acer saccharum",
+            "Silver Maple Acer saccharinum",
+            "Northern Red Oak Quercus rubra",
+            "White Oak Quercus alba");
+
+    public void testMisspelledScientificName() {
+        int[] ranked = new FuzzyIndex(SPECIES, null).rank("Acer rubum", 10);
+        assertTrue(ranked.length > 0);
+        assertEquals("Red Maple Acer rubrum", SPECIES.get(ranked[0]));
+    }
+
+    public void testExactMatchesRankAboveTypos() {
+        int[] ranked = new FuzzyIndex(SPECIES, null).rank("saccharum", 10);
+        assertEquals(2, ranked.length);
+        assertEquals("Sugar Maple Acer saccharum", SPECIES.get(ranked[0]));
+        assertEquals("Silver Maple Acer saccharinum", SPECIES.get(ranked[1]));
+    }
+
+    public void testLastWordIsPrefix() {
+        int[] ranked = new FuzzyIndex(SPECIES, null).rank("quercus al", 10);
+        assertEquals(1, ranked.length);
+        assertEquals("White Oak Quercus alba", SPECIES.get(ranked[0]));
+    }
+
+    public void testUsageBoost() {
+        int[] counts = {0, 0, 0, 0, 0};
+        assertEquals(0, new FuzzyIndex(SPECIES, counts).rank("maple", 10)[0]);
+
+        counts[2] = 10;
+        assertEquals(2, new FuzzyIndex(SPECIES, counts).rank("maple", 10)[0]);
+    }
+
+    public void testNoMatches() {
+        assertEquals(0, new FuzzyIndex(SPECIES, null).rank("zelkova", 10).length);
+    }
+}
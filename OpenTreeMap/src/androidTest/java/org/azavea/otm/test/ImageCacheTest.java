@@ -0,0 +1,97 @@
+package org.azavea.otm.test;
+
+import android.graphics.Bitmap;
+
+import org.azavea.otm.images.ImageDiskCache;
+import org.azavea.otm.images.ImageLoader;
+import org.azavea.otm.images.ImageMemoryCache;
+
+import java.io.File;
+import java.util.Arrays;
+
+
+public class ImageCacheTest extends OpenTreeMapTestCase {
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(getInstrumentation().getTargetContext().getCacheDir(), "image-cache-test");
+        deleteDirectory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteDirectory();
+        super.tearDown();
+    }
+
+    public void testSampleSize() {
+        // A 4000x3000 photo in a dialog on a 1080px wide screen
+        assertEquals(2, ImageLoader.getSampleSize(4000, 3000, 1080));
+        // A 640x480 thumbnail in a 144px list row
+        assertEquals(2, ImageLoader.getSampleSize(640, 480, 144));
+        assertEquals(1, ImageLoader.getSampleSize(100, 100, 144));
+    }
+
+    public void testDiskCacheRoundTrip() {
+        ImageDiskCache cache = new ImageDiskCache(directory, 1000);
+        assertNull(cache.get("/photos/1.jpg"));
+
+        byte[] data = {1, 2, 3};
+        cache.put("/photos/1.jpg", data);
+        assertTrue(Arrays.equals(data, cache.get("/photos/1.jpg")));
+
+        // Another cache over the same directory, as after a restart
+        assertTrue(Arrays.equals(data, new ImageDiskCache(directory, 1000).get("/photos/1.jpg")));
+    }
+
+    public void testDiskCacheDropsLeastRecentlyUsed() {
+        ImageDiskCache cache = new ImageDiskCache(directory, 250);
+        cache.put("/photos/1.jpg", new byte[100]);
+        cache.put("/photos/2.jpg", new byte[100]);
+        cache.get("/photos/1.jpg");
+
+        cache.put("/photos/3.jpg", new byte[100]);
+        assertNotNull(cache.get("/photos/1.jpg"));
+        assertNull(cache.get("/photos/2.jpg"));
+        assertNotNull(cache.get("/photos/3.jpg"));
+    }
+
+    public void testDiskCacheKeepsUseOrderAfterRestart() {
+        ImageDiskCache cache = new ImageDiskCache(directory, 250);
+        cache.put("/photos/1.jpg", new byte[100]);
+        cache.put("/photos/2.jpg", new byte[100]);
+        cache.get("/photos/1.jpg");
+
+        ImageDiskCache restarted = new ImageDiskCache(directory, 250);
+        restarted.put("/photos/3.jpg", new byte[100]);
+        assertNotNull(restarted.get("/photos/1.jpg"));
+        assertNull(restarted.get("/photos/2.jpg"));
+    }
+
+    public void testMemoryCacheServesLargerImages() {
+        ImageMemoryCache cache = new ImageMemoryCache(10 * 1024 * 1024);
+        cache.put("/photos/1.jpg", Bitmap.createBitmap(200, 150, Bitmap.Config.ARGB_8888), false);
+        assertNotNull(cache.get("/photos/1.jpg", 144));
+        assertNull(cache.get("/photos/1.jpg", 300));
+
+        // A smaller copy doesn't replace the larger one
+        cache.put("/photos/1.jpg", Bitmap.createBitmap(100, 75, Bitmap.Config.ARGB_8888), false);
+        assertEquals(200, cache.get("/photos/1.jpg").getWidth());
+
+        // An image at full size is served for any target
+        cache.put("/photos/2.jpg", Bitmap.createBitmap(100, 75, Bitmap.Config.ARGB_8888), true);
+        assertNotNull(cache.get("/photos/2.jpg", 300));
+    }
+
+    private void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
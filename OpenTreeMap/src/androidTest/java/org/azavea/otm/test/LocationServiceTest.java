@@ -0,0 +1,176 @@
+package org.azavea.otm.test;
+
+import android.location.Location;
+
+import com.google.common.base.Ticker;
+
+import org.azavea.otm.location.LocationService;
+import org.azavea.otm.location.LocationService.Accuracy;
+import org.azavea.otm.location.LocationService.Request;
+import org.azavea.otm.location.LocationSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+public class LocationServiceTest extends OpenTreeMapTestCase {
+    private static final Request MAP_REQUEST = new Request(Accuracy.HIGH, 1000, 0, 0);
+    private static final Request LIST_REQUEST = new Request(Accuracy.BALANCED, 5000, 10, 0);
+
+    private FakeSource source;
+    private FakeTicker ticker;
+    private LocationService service;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        source = new FakeSource();
+        ticker = new FakeTicker();
+        service = new LocationService(source, ticker);
+    }
+
+    public void testCombinesRequests() {
+        service.subscribe(LIST_REQUEST, location -> {});
+        assertEquals(LIST_REQUEST, source.request);
+
+        LocationService.Listener map = location -> {};
+        service.subscribe(MAP_REQUEST, map);
+        assertEquals(Accuracy.HIGH, source.request.accuracy);
+        assertEquals(1000, source.request.intervalMillis);
+        assertEquals(0f, source.request.minDistance);
+
+        service.unsubscribe(map);
+        assertEquals(LIST_REQUEST, source.request);
+    }
+
+    public void testSameRequestDoesNotRestartSource() {
+        service.subscribe(LIST_REQUEST, location -> {});
+        service.subscribe(LIST_REQUEST, location -> {});
+        assertEquals(1, source.starts);
+    }
+
+    public void testStopsWithoutSubscribers() {
+        LocationService.Listener listener = location -> {};
+        service.subscribe(LIST_REQUEST, listener);
+        service.unsubscribe(listener);
+        assertNull(source.request);
+        assertNull(service.getActiveRequest());
+    }
+
+    public void testEachSubscriberGetsItsOwnInterval() {
+        List<Location> mapFixes = new ArrayList<>();
+        List<Location> listFixes = new ArrayList<>();
+        service.subscribe(MAP_REQUEST, mapFixes::add);
+        service.subscribe(LIST_REQUEST, listFixes::add);
+
+        // A fix a second, 20 meters apart
+        for (int i = 0; i < 6; i++) {
+            source.report(fix(i * 1000, i * 20, 10));
+        }
+        assertEquals(6, mapFixes.size());
+        assertEquals(2, listFixes.size());
+    }
+
+    public void testSubscriberMinDistance() {
+        List<Location> fixes = new ArrayList<>();
+        service.subscribe(LIST_REQUEST, fixes::add);
+
+        source.report(fix(0, 0, 10));
+        source.report(fix(10000, 5, 10));
+        source.report(fix(20000, 50, 10));
+        assertEquals(2, fixes.size());
+        assertEquals(20000, fixes.get(1).getTime());
+    }
+
+    public void testOnlyLatestFixOfBatchIsDelivered() {
+        List<Location> fixes = new ArrayList<>();
+        service.subscribe(MAP_REQUEST, fixes::add);
+
+        source.report(fix(0, 0, 30), fix(1000, 20, 20), fix(2000, 40, 10));
+        assertEquals(1, fixes.size());
+        assertEquals(2000, fixes.get(0).getTime());
+        assertEquals(3, service.getFixCount());
+        assertEquals(1, service.getBatchCount());
+        assertEquals(20.0, service.getMeanAccuracy(), 0.001);
+        assertEquals(10f, service.getLastFixAccuracy());
+    }
+
+    public void testBackgroundUsesLowPower() {
+        service.subscribe(MAP_REQUEST, location -> {});
+
+        service.setInBackground(true);
+        assertEquals(Accuracy.LOW_POWER, source.request.accuracy);
+        assertTrue(source.request.intervalMillis >= TimeUnit.MINUTES.toMillis(1));
+        assertTrue(source.request.maxDelayMillis > 0);
+
+        service.setInBackground(false);
+        assertEquals(MAP_REQUEST, source.request);
+    }
+
+    public void testFixAge() {
+        assertEquals(-1, service.getLastFixAgeMillis());
+        service.subscribe(MAP_REQUEST, location -> {});
+
+        Location location = fix(0, 0, 10);
+        location.setTime(System.currentTimeMillis());
+        source.report(location);
+        ticker.advance(3000);
+        long age = service.getLastFixAgeMillis();
+        assertTrue(age >= 3000 && age < 4000);
+    }
+
+    /**
+     * A fix the given number of meters north of a fixed point
+     */
+    private static Location fix(long time, double metersNorth, float accuracy) {
+        Location location = new Location("fake");
+        location.setLatitude(39.95 + metersNorth / 111320);
+        location.setLongitude(-75.16);
+        location.setTime(time);
+        location.setAccuracy(accuracy);
+        return location;
+    }
+
+    private static class FakeSource implements LocationSource {
+        Request request = null;
+        Callback callback = null;
+        int starts = 0;
+
+        @Override
+        public void start(Request request, Callback callback) {
+            this.request = request;
+            this.callback = callback;
+            starts++;
+        }
+
+        @Override
+        public void stop() {
+            request = null;
+            callback = null;
+        }
+
+        @Override
+        public Location getLastKnownLocation() {
+            return null;
+        }
+
+        void report(Location... fixes) {
+            callback.onLocations(Arrays.asList(fixes));
+        }
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
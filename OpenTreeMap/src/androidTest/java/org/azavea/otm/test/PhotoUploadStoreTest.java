@@ -0,0 +1,70 @@
+package org.azavea.otm.test;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import org.azavea.otm.images.PhotoUploadStore;
+import org.azavea.otm.images.PhotoUploadStore.PhotoUpload;
+
+import java.io.File;
+import java.util.List;
+
+
+public class PhotoUploadStoreTest extends OpenTreeMapTestCase {
+    private Context context;
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        directory = new File(context.getCacheDir(), "photo-upload-test");
+        clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        clear();
+        super.tearDown();
+    }
+
+    public void testUploadsOutliveTheStore() {
+        PhotoUploadStore store = new PhotoUploadStore(context, directory);
+        PhotoUpload first = store.add("philly", 12, "user", Bitmap.createBitmap(40, 30, Bitmap.Config.ARGB_8888));
+        PhotoUpload second = store.add("philly", 34, "user", Bitmap.createBitmap(40, 30, Bitmap.Config.ARGB_8888));
+        assertNotNull(first);
+        assertTrue(store.getFile(first).length() > 0);
+
+        // Another store, as after the process is restarted
+        List<PhotoUpload> uploads = new PhotoUploadStore(context, directory).getUploads();
+        assertEquals(2, uploads.size());
+        assertEquals(first, uploads.get(0));
+        assertEquals("philly", uploads.get(0).instanceUrlName);
+        assertEquals(12, uploads.get(0).plotId);
+        assertEquals("user", uploads.get(0).userName);
+        assertEquals(second, uploads.get(1));
+    }
+
+    public void testRemoveDeletesPhoto() {
+        PhotoUploadStore store = new PhotoUploadStore(context, directory);
+        PhotoUpload upload = store.add("philly", 12, "user", Bitmap.createBitmap(40, 30, Bitmap.Config.ARGB_8888));
+        store.remove(upload);
+
+        assertFalse(store.getFile(upload).exists());
+        assertTrue(new PhotoUploadStore(context, directory).getUploads().isEmpty());
+    }
+
+    private void clear() {
+        PhotoUploadStore store = new PhotoUploadStore(context, directory);
+        for (PhotoUpload upload : store.getUploads()) {
+            store.remove(upload);
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,32 @@
+package org.azavea.otm.test;
+
+import org.azavea.otm.data.Plot;
+import org.azavea.otm.data.PlotChangeSet;
+import org.json.JSONObject;
+
+public class PlotChangeSetTest extends OpenTreeMapTestCase {
+    private static final String PLOT_JSON = "{\"plot\": {\"id\": 1, \"width\": 4}, " +
+            "\"tree\": {\"diameter\": 12, \"species\": null}, \"has_tree\": true}";
+
+    public void testOnlyChangedKeysAreSerialized() throws Exception {
+        Plot plot = new Plot(new JSONObject(PLOT_JSON));
+        plot.setValueForKey("plot.width", 4);
+        plot.setValueForKey("tree.diameter", 14.5);
+
+        PlotChangeSet changes = plot.getChangeSet();
+        assertEquals(1, changes.getChangedKeys().size());
+
+        JSONObject json = changes.toJSON();
+        assertEquals(14.5, json.getJSONObject("tree").getDouble("diameter"));
+        assertFalse(json.getJSONObject("plot").has("width"));
+    }
+
+    public void testRevertingAValueRemovesTheChange() throws Exception {
+        Plot plot = new Plot(new JSONObject(PLOT_JSON));
+        plot.setValueForKey("tree.diameter", 20);
+        plot.setValueForKey("tree.diameter", 12.0);
+        plot.setValueForKey("tree.species", JSONObject.NULL);
+
+        assertTrue(plot.getChangeSet().isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package org.azavea.otm.test;
+
+import android.util.Log;
+
+import org.azavea.otm.adapters.LinkedHashMapAdapter.FilterType;
+import org.azavea.otm.adapters.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+public class SearchIndexBenchmarkTest extends OpenTreeMapTestCase {
+    private static final String TAG = "SearchIndexBenchmark";
+
+    private static final String[] COMMON = {"Red", "Sugar", "Silver", "Norway", "White", "Pin",
+            "Black", "Swamp", "Little", "Eastern", "Western", "Japanese", "Weeping", "Scarlet"};
+    private static final String[] TREES = {"Maple", "Oak", "Pine", "Birch", "Cherry", "Elm",
+            "Willow", "Linden", "Spruce", "Ash", "Hawthorn", "Magnolia", "Sweetgum", "Zelkova"};
+    private static final String[] GENERA = {"Acer", "Quercus", "Pinus", "Betula", "Prunus",
+            "Ulmus", "Salix", "Tilia", "Picea", "Fraxinus", "Crataegus", "Magnolia"};
+    private static final String[] EPITHETS = {"rubrum", "saccharum", "saccharinum", "platanoides",
+            "alba", "palustris", "nigra", "bicolor", "cordata", "serrulata", "americana"};
+
+    // What a user types, one keystroke at a time
+    private static final String[] KEYSTROKES = {"r", "re", "red", "red ", "red m", "red ma",
+            "red map", "s", "sw", "swe", "swee", "a", "ac", "ace", "acer", "q", "qu", "que", "p",
+            "pl", "pla", "plat"};
+
+    public void testWordPrefixSearch5k() {
+        benchmark(5000, FilterType.WORD_PREFIX);
+    }
+
+    public void testWordPrefixSearch50k() {
+        benchmark(50000, FilterType.WORD_PREFIX);
+    }
+
+    public void testAnywhereSearch5k() {
+        benchmark(5000, FilterType.ANYWHERE);
+    }
+
+    public void testAnywhereSearch50k() {
+        benchmark(50000, FilterType.ANYWHERE);
+    }
+
+    private void benchmark(int count, FilterType filterType) {
+        List<String> names = makeSpeciesNames(count);
+
+        long start = System.nanoTime();
+        SearchIndex index = new SearchIndex(names, filterType);
+        long buildTime = System.nanoTime() - start;
+
+        long[] times = new long[KEYSTROKES.length];
+        for (int i = 0; i < KEYSTROKES.length; i++) {
+            String query = KEYSTROKES[i];
+            start = System.nanoTime();
+            int[] matches = index.search(query);
+            times[i] = System.nanoTime() - start;
+
+            assertMatches(names, query, filterType, matches);
+        }
+        Arrays.sort(times);
+        long median = times[times.length / 2] / 1000;
+
+        Log.d(TAG, String.format("%s, %d entries: build %dms, median query %dus, max query %dus",
+                filterType, count, buildTime / 1000000, median, times[times.length - 1] / 1000));
+    }
+
+    /**
+     * Compare against a scan of every name.  Queries with a space in them can match from the start
+     * of any word, so only check that the index finds at least what the scan does for those.
+     */
+    private static void assertMatches(List<String> names, String query, FilterType filterType,
+                                      int[] matches) {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (scanMatches(names.get(i).toLowerCase(), query, filterType)) {
+                expected.add(i);
+            }
+        }
+        if (query.contains(" ")) {
+            for (int item : expected) {
+                assertTrue("'" + query + "' missed " + names.get(item),
+                        Arrays.binarySearch(matches, item) >= 0);
+            }
+        } else {
+            assertEquals("Wrong number of matches for '" + query + "'", expected.size(), matches.length);
+            for (int i = 0; i < matches.length; i++) {
+                assertEquals((int) expected.get(i), matches[i]);
+            }
+        }
+    }
+
+    private static boolean scanMatches(String text, String query, FilterType filterType) {
+        if (text.startsWith(query)) {
+            return true;
+        }
+        if (filterType == FilterType.ANYWHERE) {
+            return text.contains(query);
+        }
+        for (String word : text.split(" ")) {
+            if (word.startsWith(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> makeSpeciesNames(int count) {
+        Random random = new Random(count);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Same format as Species.toString
+            names.add(pick(random, COMMON) + " " + pick(random, TREES) + " " + pick(random, GENERA)
+                    + " " + pick(random, EPITHETS) + " '" + Integer.toString(i, 36) + "'");
+        }
+        return names;
+    }
+
+    private static String pick(Random random, String[] choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+}
@@ -0,0 +1,46 @@
+package org.azavea.otm.test;
+
+import org.azavea.otm.data.SectionIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+
+public class SectionIndexTest extends OpenTreeMapTestCase {
+    private static final String[] NAMES = {"Ölandstall", "Zelkova", "ask", "Élan", "Äpple", "Ek", "3rd Street Elm"};
+
+    public void testEnglishSections() {
+        LinkedHashMap<CharSequence, List<String>> sections =
+                SectionIndex.build(NAMES, Locale.ENGLISH).group(NAMES);
+
+        assertEquals(Arrays.asList("#", "A", "E", "O", "Z"), Arrays.asList(sections.keySet().toArray()));
+        assertEquals(Arrays.asList("Äpple", "ask"), sections.get("A"));
+        assertEquals(Arrays.asList("Ek", "Élan"), sections.get("E"));
+        assertEquals(Arrays.asList("3rd Street Elm"), sections.get("#"));
+    }
+
+    public void testSwedishSections() {
+        LinkedHashMap<CharSequence, List<String>> sections =
+                SectionIndex.build(NAMES, new Locale("sv", "SE")).group(NAMES);
+
+        // Å, Ä and Ö are letters of their own, after Z
+        assertEquals(Arrays.asList("#", "A", "E", "Z", "Ä", "Ö"), Arrays.asList(sections.keySet().toArray()));
+        assertEquals(Arrays.asList("ask"), sections.get("A"));
+    }
+
+    public void testRoundTrip() throws Exception {
+        SectionIndex index = SectionIndex.build(NAMES, Locale.ENGLISH);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        SectionIndex read = SectionIndex.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+        assertTrue(read.isFor(Locale.ENGLISH));
+        assertFalse(read.isFor(Locale.FRENCH));
+        assertEquals(index.group(NAMES), read.group(NAMES));
+    }
+}
@@ -14,4 +14,14 @@ public interface InfoList {
     public void setupLocationUpdating(Context applicationContext);
 
     public void removeLocationUpdating();
+
+    /**
+     * Load the rows after the last one, as the user scrolls towards the end of the list
+     */
+    public void loadMore();
+
+    /**
+     * Load the rows before the first one again, if they were dropped to make room
+     */
+    public void loadPrevious();
 }
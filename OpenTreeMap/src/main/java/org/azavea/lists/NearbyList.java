@@ -1,11 +1,10 @@
 package org.azavea.lists;
 
 import android.content.Context;
-import android.location.Criteria;
+import android.content.res.Resources;
 import android.location.Location;
-import android.location.LocationListener;
-import android.location.LocationManager;
-import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.widget.Toast;
 
 import org.azavea.helpers.Logger;
@@ -15,25 +14,56 @@ import org.azavea.otm.R;
 import org.azavea.otm.data.Plot;
 import org.azavea.otm.data.PlotContainer;
 import org.azavea.otm.fields.TextField;
+import org.azavea.otm.location.LocationService;
 import org.azavea.otm.rest.RequestGenerator;
 import org.azavea.otm.rest.handlers.ContainerRestHandler;
 import org.json.JSONException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.Set;
 
 public class NearbyList implements InfoList {
-    private static final long MIN_TIME_DELAY = 5000;
-    private PlotContainer nearbyPlots;
+    // A fix every 5 seconds at most, and only after moving 10m, since smaller movements are never
+    // worth a refresh
+    private static final LocationService.Request LOCATION_REQUEST =
+            new LocationService.Request(LocationService.Accuracy.BALANCED, 5000, 10, 0);
+
+    // Later pages come from rings of doubling distance, up to the maximum
+    private static final double FIRST_RING_DISTANCE = 200;
+    private static final double MAX_RING_DISTANCE = 10000;
+    // The API returns at most this many plots per request
+    private static final int MAX_PLOTS_PER_REQUEST = 500;
+    // Rows kept in memory.  As the user scrolls, the rows at the other end of the list are dropped.
+    private static final int MAX_ROWS = 200;
+    private NearbyRows rows = new NearbyRows(new Plot[0], new String[0]);
     private double lat;
     private double lon;
     private final ArrayList<ListObserver> observers = new ArrayList<>();
-    private LocationManager locationManager;
-    private LocationListener locationListener;
+    private final LocationService.Listener locationListener = this::onLocationChanged;
     private boolean filterRecent;
     private boolean filterPending;
     private final Context context;
+    private final NearbyRefreshPolicy refreshPolicy;
+    // Identifies the latest request, so responses to earlier ones can be ignored
+    private int requestCount = 0;
+
+    // Paging.  The API has no offsets, so every plot within a ring around the location of the
+    // first page is requested at once, and the plots loaded so far are kept, nearest first.  The
+    // rows are a window onto them, from windowStart up to windowEnd.
+    private double pageLat;
+    private double pageLon;
+    private final List<Plot> loadedPlots = new ArrayList<>();
+    private final Set<Integer> loadedIds = new HashSet<>();
+    private int windowStart = 0;
+    private int windowEnd = 0;
+    private double ringDistance;
+    private boolean allRingsLoaded = false;
+    private boolean loadingRing = false;
+    private boolean showPageWhenLoaded = false;
 
     public NearbyList(Context context) {
         lat = App.getCurrentInstance().getStartPos().latitude;
@@ -41,6 +71,7 @@ public class NearbyList implements InfoList {
         filterRecent = false;
         filterPending = false;
         this.context = context;
+        this.refreshPolicy = createRefreshPolicy(context);
     }
 
     public NearbyList(Context context, double lat, double lon) {
@@ -49,49 +80,40 @@ public class NearbyList implements InfoList {
         filterRecent = false;
         filterPending = false;
         this.context = context;
+        this.refreshPolicy = createRefreshPolicy(context);
+    }
+
+    private static NearbyRefreshPolicy createRefreshPolicy(Context context) {
+        Resources resources = context.getResources();
+        return new NearbyRefreshPolicy(
+                resources.getFraction(R.fraction.nearby_refresh_radius_fraction, 1, 1),
+                resources.getInteger(R.integer.nearby_max_age_seconds) * 1000L);
     }
 
     @Override
     public void setupLocationUpdating(Context applicationContext) {
-        locationManager = (LocationManager) applicationContext.getSystemService(Context.LOCATION_SERVICE);
-
-        locationListener = new LocationListener() {
-            @Override
-            public void onLocationChanged(Location location) {
-                lat = location.getLatitude();
-                lon = location.getLongitude();
-                update();
-            }
-
-            @Override
-            public void onProviderEnabled(String provider) {
-                // TODO Auto-generated method stub
-
-            }
-
-            @Override
-            public void onProviderDisabled(String provider) {
-                // TODO Auto-generated method stub
-
-            }
-
-            @Override
-            public void onStatusChanged(String provider, int status, Bundle extras) {
-                // TODO Auto-generated method stub
-
-            }
-        };
-        if (locationManager != null) {
-            locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER,
-                    MIN_TIME_DELAY, 0, locationListener);
-            setInitialLocation();
-        }
-
+        LocationService locationService = App.getLocationService();
+        locationService.subscribe(LOCATION_REQUEST, locationListener);
+        setInitialLocation(locationService.getLastLocation());
     }
 
     @Override
     public void removeLocationUpdating() {
-        locationManager.removeUpdates(locationListener);
+        App.getLocationService().unsubscribe(locationListener);
+        Log.d(App.LOG_TAG, "Nearby refreshes avoided: " + refreshPolicy.getRefreshesAvoided());
+    }
+
+    private void onLocationChanged(Location location) {
+        lat = location.getLatitude();
+        lon = location.getLongitude();
+        if (refreshPolicy.shouldRefresh(lat, lon, SystemClock.elapsedRealtime())) {
+            update();
+        } else {
+            // The plots are the same, but their distances have changed
+            if (rows.updateDistances(lat, lon, useFeet())) {
+                notifyObservers();
+            }
+        }
     }
 
     public void setFilterRecent(boolean filterRecent) {
@@ -104,88 +126,240 @@ public class NearbyList implements InfoList {
 
     @Override
     public DisplayablePlot[] getDisplayValues() {
-        ArrayList<DisplayablePlot> listValues = new ArrayList<>();
-        String mainInfo;
-        String supplementaryInfo;
-        String distance;
+        return rows.getRows();
+    }
 
-        try {
-            if (nearbyPlots != null) {
-                Map<Integer, Plot> plotObjects = nearbyPlots.getAll();
-                for (Plot p : plotObjects.values()) {
-                    if (p.getTree() != null) {
-                        mainInfo = getSpecies(p);
-
-                        supplementaryInfo = getDiameter(p);
-                    } else {
-                        mainInfo = "Unassigned plot";
-
-                        supplementaryInfo = getPlotId(p);
-                    }
-                    distance = getDisplayDistance(p);
-                    listValues.add(new DisplayablePlot(p, mainInfo + ", " + supplementaryInfo + ", " + distance));
+    /**
+     * Build the description of each plot, which doesn't change as the user moves
+     */
+    private NearbyRows createRows(Collection<Plot> plots) {
+        TextField dbhField = (TextField) App.getFieldManager().getField("tree.diameter");
+        String[] descriptions = new String[plots.size()];
+        int i = 0;
+        for (Plot p : plots) {
+            String mainInfo;
+            String supplementaryInfo;
+            try {
+                if (p.getTree() != null) {
+                    mainInfo = getSpecies(p);
+                    supplementaryInfo = getDiameter(p, dbhField);
+                } else {
+                    mainInfo = "Unassigned plot";
+                    supplementaryInfo = getPlotId(p);
                 }
+            } catch (JSONException e) {
+                Logger.error("JSONException from nearby plot list", e);
+                mainInfo = context.getString(R.string.species_missing);
+                supplementaryInfo = getPlotId(p);
             }
-        } catch (JSONException e) {
-            Logger.error("JSONException from nearby plot list", e);
+            descriptions[i++] = mainInfo + ", " + supplementaryInfo;
         }
+        return new NearbyRows(plots.toArray(new Plot[plots.size()]), descriptions);
+    }
 
-        return listValues.toArray(new DisplayablePlot[0]);
+    private static boolean useFeet() {
+        return Locale.US.equals(Locale.getDefault());
     }
 
-    private void setInitialLocation() {
-        Criteria crit = new Criteria();
-        crit.setAccuracy(Criteria.ACCURACY_FINE);
-        String provider = locationManager.getBestProvider(crit, true);
-
-        if (provider != null) {
-            Location loc = locationManager.getLastKnownLocation(provider);
-            if (loc != null) {
-                lat = loc.getLatitude();
-                lon = loc.getLongitude();
-                update();
-            }
+    private void setInitialLocation(Location location) {
+        if (location != null) {
+            lat = location.getLatitude();
+            lon = location.getLongitude();
+            update();
         }
-
     }
 
+    /**
+     * Fetch the plots near the current location
+     */
     public void update() {
+        final int request = ++requestCount;
+        final double requestLat = lat;
+        final double requestLon = lon;
+        refreshPolicy.onRequestStarted(requestLat, requestLon, SystemClock.elapsedRealtime());
+        resetPages(requestLat, requestLon);
+
         RequestGenerator rg = new RequestGenerator();
         rg.getPlotsNearLocation(lat, lon, filterRecent, filterPending, new ContainerRestHandler<PlotContainer>(
                 new PlotContainer()) {
             @Override
             public void dataReceived(PlotContainer responseObject) {
-                nearbyPlots = responseObject;
+                if (request != requestCount) {
+                    return;
+                }
+                List<Plot> plots = getNewPlots(responseObject);
+                rows = createRows(plots);
+                rows.updateDistances(requestLat, requestLon, useFeet());
+                double radius = rows.getFarthestDistance();
+                refreshPolicy.onResults((float) radius);
+                if (lat != requestLat || lon != requestLon) {
+                    rows.updateDistances(lat, lon, useFeet());
+                }
                 notifyObservers();
+
+                windowEnd = loadedPlots.size();
+                ringDistance = Math.max(FIRST_RING_DISTANCE, radius * 2);
+                allRingsLoaded = false;
+                loadNextRing();
             }
 
             @Override
             public void failure(Throwable e, String message) {
+                if (request != requestCount) {
+                    return;
+                }
+                refreshPolicy.onRequestFailed();
                 Toast.makeText(context, "Could not load nearby trees", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private void notifyObservers() {
-        for (ListObserver o : observers) {
-            o.update();
+    /**
+     * Show the next page of plots, which is usually already loaded.  Called as the user scrolls
+     * towards the end of the list.
+     */
+    @Override
+    public void loadMore() {
+        if (windowEnd < loadedPlots.size()) {
+            showNextPage();
+        } else if (!allRingsLoaded) {
+            showPageWhenLoaded = true;
+            loadNextRing();
         }
     }
 
-    private String getDisplayDistance(Plot p) {
-        String distance;
-        float dist = getDistanceFromMyLocation(p); // this is always in meters.
-        Locale locale = Locale.getDefault();
+    /**
+     * Show the page before the first row again, if it was dropped.  Called as the user scrolls
+     * towards the start of the list.
+     */
+    @Override
+    public void loadPrevious() {
+        if (windowStart == 0) {
+            return;
+        }
+        int start = Math.max(0, windowStart - getPageSize());
+        NearbyRows pageRows = createRows(loadedPlots.subList(start, windowStart));
+        int dropped = rows.size() + pageRows.size();
+        rows = rows.prepend(pageRows.getPlots(), pageRows.getDescriptions(), MAX_ROWS);
+        windowStart = start;
+        windowEnd -= dropped - rows.size();
+        rows.updateDistances(lat, lon, useFeet());
+        notifyObservers();
+    }
 
-        if (dist == -1.0) {
-            distance = "Distance unknown";
-        } else if (locale != null && locale.equals(Locale.US)) {
-            float feet = (float) (dist * 3.38084);
-            distance = Math.round(feet) + "ft";
-        } else {
-            distance = Math.round(dist) + "m";
+    private void resetPages(double lat, double lon) {
+        pageLat = lat;
+        pageLon = lon;
+        loadedPlots.clear();
+        loadedIds.clear();
+        windowStart = 0;
+        windowEnd = 0;
+        // Until the first page arrives, there's nothing to page from
+        allRingsLoaded = true;
+        loadingRing = false;
+        showPageWhenLoaded = false;
+    }
+
+    private void showNextPage() {
+        int end = Math.min(loadedPlots.size(), windowEnd + getPageSize());
+        NearbyRows pageRows = createRows(loadedPlots.subList(windowEnd, end));
+        int dropped = rows.size() + pageRows.size();
+        rows = rows.append(pageRows.getPlots(), pageRows.getDescriptions(), MAX_ROWS);
+        windowEnd = end;
+        windowStart += dropped - rows.size();
+        rows.updateDistances(lat, lon, useFeet());
+        notifyObservers();
+
+        // Stay a page ahead of the user
+        if (loadedPlots.size() - windowEnd < getPageSize()) {
+            loadNextRing();
+        }
+    }
+
+    /**
+     * Request every plot within the next ring.  The API returns the nearest plots first, and the
+     * previous ring returned every plot within it, so the new plots are all farther away than the
+     * ones already loaded.  Each ring is twice as far as the last, so the plots requested again
+     * add up to no more than the plots loaded.
+     * <p>
+     * Paging stops once a ring returns as many plots as the API allows, since plots beyond those
+     * can't be requested, or once the largest ring has been loaded.
+     */
+    private void loadNextRing() {
+        if (loadingRing || allRingsLoaded) {
+            return;
+        }
+        final double distance = ringDistance;
+        final int request = requestCount;
+        loadingRing = true;
+
+        RequestGenerator rg = new RequestGenerator();
+        rg.getPlotsNearLocation(pageLat, pageLon, filterRecent, filterPending, MAX_PLOTS_PER_REQUEST,
+                distance, new ContainerRestHandler<PlotContainer>(new PlotContainer()) {
+            @Override
+            public void dataReceived(PlotContainer responseObject) {
+                if (request != requestCount) {
+                    return;
+                }
+                loadingRing = false;
+                boolean full = responseObject.getData().length() >= MAX_PLOTS_PER_REQUEST;
+                boolean newPlots = !getNewPlots(responseObject).isEmpty();
+                ringDistance = distance * 2;
+                allRingsLoaded = full || distance >= MAX_RING_DISTANCE;
+
+                if (newPlots && showPageWhenLoaded) {
+                    showPageWhenLoaded = false;
+                    showNextPage();
+                } else if (!newPlots) {
+                    // Nothing new within this ring, so look farther out.  The rings have a
+                    // maximum distance, so this ends.
+                    loadNextRing();
+                }
+            }
+
+            @Override
+            public void failure(Throwable e, String message) {
+                if (request == requestCount) {
+                    loadingRing = false;
+                    Logger.warning("Could not load the next page of nearby trees", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Add the plots in the response which haven't already been loaded to the loaded plots
+     *
+     * @return the new plots
+     */
+    private List<Plot> getNewPlots(PlotContainer response) {
+        List<Plot> plots = new ArrayList<>();
+        try {
+            for (Plot plot : response.getAll().values()) {
+                if (loadedIds.add(plot.getId())) {
+                    plots.add(plot);
+                    loadedPlots.add(plot);
+                }
+            }
+        } catch (JSONException e) {
+            Logger.error("Error parsing nearby plot JSON", e);
+        }
+        App.getFilterManager().getPlotCache().putAll(plots);
+        return plots;
+    }
+
+    private static int getPageSize() {
+        try {
+            return Integer.parseInt(App.getSharedPreferences().getString("max_nearby_plots", "10"));
+        } catch (NumberFormatException e) {
+            return 10;
+        }
+    }
+
+    private void notifyObservers() {
+        for (ListObserver o : observers) {
+            o.update();
         }
-        return distance;
     }
 
     private String getPlotId(Plot p) {
@@ -199,9 +373,7 @@ public class NearbyList implements InfoList {
         return supplementaryInfo;
     }
 
-    private String getDiameter(Plot p) {
-        String dbhKey = "tree.diameter";
-        TextField dbhField = (TextField) App.getFieldManager().getField(dbhKey);
+    private String getDiameter(Plot p, TextField dbhField) {
         String diameter = context.getString(R.string.diameter_missing);
 
         try {
@@ -237,28 +409,6 @@ public class NearbyList implements InfoList {
 
     @Override
     public Object[] getListValues() {
-        Object[] plots;
-        try {
-            Map<Integer, Plot> plotMap = nearbyPlots.getAll();
-            plots = plotMap.values().toArray();
-        } catch (JSONException e) {
-            Logger.error("Error parsing nearby plot JSON", e);
-            return null;
-        }
-
-        return plots;
-    }
-
-    private float getDistanceFromMyLocation(Plot p) {
-        float[] distance = new float[1];
-
-        try {
-            double plotLat = p.getGeometry().getY();
-            double plotLon = p.getGeometry().getX();
-            Location.distanceBetween(lat, lon, plotLat, plotLon, distance);
-            return distance[0];
-        } catch (Exception e) {
-            return -1;
-        }
+        return rows.getPlots();
     }
 }
@@ -0,0 +1,97 @@
+package org.azavea.lists;
+
+import android.location.Location;
+
+/**
+ * Decides whether a location update should refresh the nearby list.
+ * <p>
+ * The nearby plots only change in a meaningful way once the user has moved a good part of the
+ * way to the farthest plot in the list, so a refresh is only needed after moving more than a
+ * fraction of that radius, or once the results are older than the maximum age.  Updates which
+ * arrive while a request is in flight are dropped.
+ */
+public class NearbyRefreshPolicy {
+    // Don't refresh for movement within the accuracy of a network location fix
+    private static final float MIN_REFRESH_DISTANCE = 25;
+
+    private final float radiusFraction;
+    private final long maxAgeMillis;
+
+    private boolean hasResults = false;
+    private boolean inFlight = false;
+    private double fetchLat;
+    private double fetchLon;
+    private long fetchTime;
+    private float resultRadius;
+
+    private int refreshesAvoided = 0;
+
+    /**
+     * @param radiusFraction how much of the result radius to move before refreshing
+     * @param maxAgeMillis   how long results are used for, however far the user has moved
+     */
+    public NearbyRefreshPolicy(float radiusFraction, long maxAgeMillis) {
+        this.radiusFraction = radiusFraction;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * @param now the current time, in the same clock as passed to {@link #onRequestStarted}
+     * @return true if the nearby plots should be fetched again for the new location
+     */
+    public synchronized boolean shouldRefresh(double lat, double lon, long now) {
+        if (inFlight) {
+            refreshesAvoided++;
+            return false;
+        }
+        if (!hasResults) {
+            return true;
+        }
+        if (now - fetchTime < maxAgeMillis && getDistance(lat, lon) <= getRefreshDistance()) {
+            refreshesAvoided++;
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void onRequestStarted(double lat, double lon, long now) {
+        inFlight = true;
+        fetchLat = lat;
+        fetchLon = lon;
+        fetchTime = now;
+    }
+
+    /**
+     * @param radius the distance in meters from the request location to the farthest result
+     */
+    public synchronized void onResults(float radius) {
+        inFlight = false;
+        hasResults = true;
+        resultRadius = radius;
+    }
+
+    /**
+     * The next location update will refresh, to try again
+     */
+    public synchronized void onRequestFailed() {
+        inFlight = false;
+        hasResults = false;
+    }
+
+    /**
+     * The number of location updates which didn't cause a refresh
+     */
+    public synchronized int getRefreshesAvoided() {
+        return refreshesAvoided;
+    }
+
+    private float getRefreshDistance() {
+        return Math.max(MIN_REFRESH_DISTANCE, radiusFraction * resultRadius);
+    }
+
+    private float getDistance(double lat, double lon) {
+        float[] distance = new float[1];
+        Location.distanceBetween(fetchLat, fetchLon, lat, lon, distance);
+        return distance[0];
+    }
+}
@@ -0,0 +1,219 @@
+package org.azavea.lists;
+
+import org.azavea.lists.data.DisplayablePlot;
+import org.azavea.otm.data.Geometry;
+import org.azavea.otm.data.Plot;
+import org.json.JSONException;
+
+/**
+ * The display rows of the nearby plots, sorted by distance from the user.
+ * <p>
+ * Each plot's description is built once, when the plots are received.  When only the user's
+ * location changes, the distances are recomputed into a primitive array, rows are rebuilt only if
+ * their rounded distance changed, and the existing order is re-sorted with an insertion sort,
+ * which is linear when the user has moved a little and the order is nearly the same.
+ */
+class NearbyRows {
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final Plot[] plots;
+    private final String[] descriptions;
+    private final double[] plotLats;
+    private final double[] plotLons;
+
+    private final double[] distances;
+    private final String[] distanceTexts;
+    private final DisplayablePlot[] rows;
+
+    // Plot indexes, nearest first
+    private final int[] order;
+
+    /**
+     * @param descriptions the text shown for each plot, before its distance
+     */
+    NearbyRows(Plot[] plots, String[] descriptions) {
+        int size = plots.length;
+        this.plots = plots;
+        this.descriptions = descriptions;
+        this.plotLats = new double[size];
+        this.plotLons = new double[size];
+        this.distances = new double[size];
+        this.distanceTexts = new String[size];
+        this.rows = new DisplayablePlot[size];
+        this.order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            plotLats[i] = Double.NaN;
+            plotLons[i] = Double.NaN;
+            try {
+                Geometry geometry = plots[i].getGeometry();
+                if (geometry != null) {
+                    plotLats[i] = geometry.getY();
+                    plotLons[i] = geometry.getX();
+                }
+            } catch (JSONException e) {
+                // The plot's distance is unknown
+            }
+        }
+    }
+
+    /**
+     * Recompute the distances from a new location
+     *
+     * @return true if any row's text or position changed
+     */
+    boolean updateDistances(double lat, double lon, boolean useFeet) {
+        boolean changed = false;
+        for (int i = 0; i < plots.length; i++) {
+            distances[i] = getDistance(lat, lon, plotLats[i], plotLons[i]);
+            String distanceText = formatDistance(distances[i], useFeet);
+            if (!distanceText.equals(distanceTexts[i])) {
+                distanceTexts[i] = distanceText;
+                rows[i] = new DisplayablePlot(plots[i], descriptions[i] + ", " + distanceText);
+                changed = true;
+            }
+        }
+        return sortByDistance() || changed;
+    }
+
+    /**
+     * Add rows after the existing ones.  The distances need to be updated before the rows are
+     * shown.
+     *
+     * @param maxRows the most rows to keep.  The first rows loaded are dropped first, since the
+     *                user has scrolled past them to load more.
+     */
+    NearbyRows append(Plot[] morePlots, String[] moreDescriptions, int maxRows) {
+        return combine(plots, descriptions, morePlots, moreDescriptions, maxRows, true);
+    }
+
+    /**
+     * Add rows before the existing ones.  The distances need to be updated before the rows are
+     * shown.
+     *
+     * @param maxRows the most rows to keep.  The last rows loaded are dropped first, since the
+     *                user has scrolled back up, away from them.
+     */
+    NearbyRows prepend(Plot[] morePlots, String[] moreDescriptions, int maxRows) {
+        return combine(morePlots, moreDescriptions, plots, descriptions, maxRows, false);
+    }
+
+    /**
+     * The plots are kept in the order they were loaded, which is the order of the API's pages,
+     * so the rows dropped are always a whole number of plots from one end of the window.
+     */
+    private static NearbyRows combine(Plot[] firstPlots, String[] firstDescriptions,
+                                      Plot[] lastPlots, String[] lastDescriptions,
+                                      int maxRows, boolean dropFirst) {
+        int total = firstPlots.length + lastPlots.length;
+        int size = Math.min(maxRows, total);
+        int start = dropFirst ? total - size : 0;
+        Plot[] combinedPlots = new Plot[size];
+        String[] combinedDescriptions = new String[size];
+        for (int i = 0; i < size; i++) {
+            int j = start + i;
+            if (j < firstPlots.length) {
+                combinedPlots[i] = firstPlots[j];
+                combinedDescriptions[i] = firstDescriptions[j];
+            } else {
+                combinedPlots[i] = lastPlots[j - firstPlots.length];
+                combinedDescriptions[i] = lastDescriptions[j - firstPlots.length];
+            }
+        }
+        return new NearbyRows(combinedPlots, combinedDescriptions);
+    }
+
+    /**
+     * @return the number of plots, which is also the number of rows
+     */
+    int size() {
+        return plots.length;
+    }
+
+    /**
+     * @return the distance to the farthest plot from the last location, in meters
+     */
+    double getFarthestDistance() {
+        double farthest = 0;
+        for (double distance : distances) {
+            if (distance > farthest) {
+                farthest = distance;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * @return the description of each plot, in the same order as {@link #getPlots()}
+     */
+    String[] getDescriptions() {
+        String[] sorted = new String[descriptions.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = descriptions[order[i]];
+        }
+        return sorted;
+    }
+
+    DisplayablePlot[] getRows() {
+        DisplayablePlot[] sorted = new DisplayablePlot[rows.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = rows[order[i]];
+        }
+        return sorted;
+    }
+
+    Plot[] getPlots() {
+        Plot[] sorted = new Plot[plots.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = plots[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Plots without a known distance sort last
+     *
+     * @return true if the order changed
+     */
+    private boolean sortByDistance() {
+        boolean moved = false;
+        for (int i = 1; i < order.length; i++) {
+            int index = order[i];
+            double distance = sortKey(index);
+            int j = i - 1;
+            while (j >= 0 && sortKey(order[j]) > distance) {
+                order[j + 1] = order[j];
+                j--;
+                moved = true;
+            }
+            order[j + 1] = index;
+        }
+        return moved;
+    }
+
+    private double sortKey(int index) {
+        return Double.isNaN(distances[index]) ? Double.POSITIVE_INFINITY : distances[index];
+    }
+
+    /**
+     * The haversine distance in meters, or NaN if the plot's location is unknown
+     */
+    static double getDistance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    static String formatDistance(double meters, boolean useFeet) {
+        if (Double.isNaN(meters)) {
+            return "Distance unknown";
+        } else if (useFeet) {
+            return Math.round(meters * 3.28084) + "ft";
+        }
+        return Math.round(meters) + "m";
+    }
+}
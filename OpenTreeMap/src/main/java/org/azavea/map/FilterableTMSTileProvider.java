@@ -2,20 +2,13 @@ package org.azavea.map;
 
 import android.net.Uri;
 
-import com.atlassian.fugue.Either;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.azavea.otm.filters.ActiveFilters;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Collection;
-
-import static com.atlassian.fugue.Eithers.filterLeft;
-import static com.atlassian.fugue.Eithers.filterRight;
 
 public class FilterableTMSTileProvider extends TMSTileProvider {
-    private JSONArray parameters = null;
+    private ActiveFilters filters = ActiveFilters.NONE;
 
     public FilterableTMSTileProvider(String baseUrl, String featureName)
             throws MalformedURLException {
@@ -24,14 +17,22 @@ public class FilterableTMSTileProvider extends TMSTileProvider {
 
     @Override
     public URL getTileUrl(int x, int y, int zoom) {
+        // The query is serialized once per set of filters, not once per tile
+        return getTileUrl(x, y, zoom, this.filters.getQuery());
+    }
+
+    /**
+     * @param query the value of the tiler's "q" parameter, or null for unfiltered tiles
+     */
+    public URL getTileUrl(int x, int y, int zoom, String query) {
         URL unfilteredUrl = super.getTileUrl(x, y, zoom);
         if (unfilteredUrl == null) {
             return null;
         }
 
         Uri.Builder urlBuilder = Uri.parse(unfilteredUrl.toString()).buildUpon();
-        if (this.parameters != null) {
-            urlBuilder.appendQueryParameter("q", this.parameters.toString());
+        if (query != null) {
+            urlBuilder.appendQueryParameter("q", query);
         }
 
         try {
@@ -41,25 +42,28 @@ public class FilterableTMSTileProvider extends TMSTileProvider {
         }
     }
 
-    public void setParameters(Collection<Either<JSONObject, JSONArray>> filters) {
-        clearParameters();
-        if (filters.isEmpty()) {
-            return;
-        }
-        this.parameters = new JSONArray();
-        this.parameters.put("AND");
-        for (JSONObject filter : filterLeft(filters)) {
-            this.parameters.put(filter);
-        }
-        for (JSONArray combinedFilters : filterRight(filters)) {
-            this.parameters.put(combinedFilters);
+    public ActiveFilters getFilters() {
+        return filters;
+    }
+
+    /**
+     * Filter the tiles by the given active filters
+     *
+     * @return true if the filters are different from the ones the tiles were already filtered by,
+     * and the tiles need to be reloaded
+     */
+    public boolean setFilters(ActiveFilters filters) {
+        if (filters.sameFiltersAs(this.filters)) {
+            return false;
         }
+        this.filters = filters;
+        return true;
     }
 
     /**
      * Remove any query string parameters from the tile requests
      */
     public void clearParameters() {
-        this.parameters = null;
+        this.filters = ActiveFilters.NONE;
     }
 }
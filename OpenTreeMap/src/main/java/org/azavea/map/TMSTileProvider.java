@@ -1,22 +1,33 @@
 package org.azavea.map;
 
 import android.net.Uri;
+import android.util.Log;
 
-import com.google.android.gms.maps.model.UrlTileProvider;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import com.google.common.io.ByteStreams;
 
 import org.azavea.otm.App;
 import org.azavea.otm.data.InstanceInfo;
 import org.json.JSONArray;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
-public class TMSTileProvider extends UrlTileProvider {
+/**
+ * Loads map tiles from the tiler.  Tiles are requested through HttpURLConnection, so they are
+ * served from the app's HTTP response cache when they have been loaded before.
+ */
+public class TMSTileProvider implements TileProvider {
     private final static int TILE_HEIGHT = 256;
     private final static int TILE_WIDTH = 256;
+    private static final int TIMEOUT_IN_MILLIS = 10000;  // 10 seconds
 
     //  OTM2 specific tile requests are in the format of:
     //    {georev}/database/otm/table/{feature}/{z}/{x}/{y}.png
@@ -29,12 +40,50 @@ public class TMSTileProvider extends UrlTileProvider {
 
     public TMSTileProvider(String baseUrl, String featureName)
             throws MalformedURLException {
-        super(TILE_WIDTH, TILE_HEIGHT);
         this.featureName = featureName;
         this.baseUrl = new URL(baseUrl).toExternalForm();
     }
 
     @Override
+    public Tile getTile(int x, int y, int zoom) {
+        URL url = getTileUrl(x, y, zoom);
+        if (url == null) {
+            return NO_TILE;
+        }
+        try {
+            byte[] data = readTile(url);
+            return data == null ? NO_TILE : new Tile(TILE_WIDTH, TILE_HEIGHT, data);
+        } catch (IOException e) {
+            // Not worth reporting, the map will ask for the tile again later
+            Log.w(App.LOG_TAG, "Could not load map tile " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the tile's image, or null if the tiler has no tile at the url
+     */
+    static byte[] readTile(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(TIMEOUT_IN_MILLIS);
+        connection.setReadTimeout(TIMEOUT_IN_MILLIS);
+        InputStream in = null;
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                Log.w(App.LOG_TAG, "Map tile request returned " + status + ": " + url);
+                return null;
+            }
+            in = connection.getInputStream();
+            return ByteStreams.toByteArray(in);
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+            connection.disconnect();
+        }
+    }
+
     public URL getTileUrl(int x, int y, int zoom) {
         InstanceInfo instance = App.getAppInstance().getCurrentInstance();
         String displayList = new JSONArray(this.displayList).toString();
@@ -0,0 +1,154 @@
+package org.azavea.map;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.common.base.Objects;
+
+import org.azavea.otm.App;
+import org.azavea.otm.filters.FilterPreset;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the tiles of each filter preset for the visible part of the map into the HTTP response
+ * cache, so switching to a preset shows its tiles without waiting for the tiler.
+ * <p>
+ * Warming is only done on Wi-Fi, one tile at a time, and stops as soon as the map moves.
+ */
+public class TileCacheWarmer {
+    // Enough to cover a phone screen at a single zoom level
+    private static final int MAX_TILES_PER_PRESET = 24;
+    private static final int MAX_WARMED_TILES = 1000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final FilterableTMSTileProvider tileProvider;
+
+    // Urls of the tiles already loaded, only used on the executor thread
+    private final Set<String> warmed = new HashSet<>();
+    private Future<?> running = null;
+
+    public TileCacheWarmer(FilterableTMSTileProvider tileProvider) {
+        this.tileProvider = tileProvider;
+    }
+
+    public static boolean isOnWifi(Context context) {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo network = connectivity.getActiveNetworkInfo();
+        return network != null && network.isConnected()
+                && network.getType() == ConnectivityManager.TYPE_WIFI;
+    }
+
+    /**
+     * Start loading the tiles of each preset within the bounds, replacing any earlier request
+     */
+    public void warm(LatLngBounds bounds, int zoom, List<FilterPreset> presets) {
+        cancel();
+        // The map is already loading the tiles of the active filters
+        final String activeQuery = tileProvider.getFilters().getQuery();
+        final List<FilterPreset> toWarm = new ArrayList<>();
+        // Presets with different names can have the same filters
+        Set<String> queryHashes = new HashSet<>();
+        for (FilterPreset preset : presets) {
+            if (!Objects.equal(preset.query, activeQuery) && queryHashes.add(preset.queryHash)) {
+                toWarm.add(preset);
+            }
+        }
+        if (toWarm.isEmpty()) {
+            return;
+        }
+
+        final List<int[]> tiles = getTiles(bounds, zoom);
+        running = executor.submit(() -> {
+            long start = System.currentTimeMillis();
+            int loaded = 0;
+            for (FilterPreset preset : toWarm) {
+                for (int[] tile : tiles) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    URL url = tileProvider.getTileUrl(tile[0], tile[1], zoom, preset.query);
+                    if (warmed.contains(url.toString())) {
+                        continue;
+                    }
+                    try {
+                        if (TMSTileProvider.readTile(url) == null) {
+                            continue;
+                        }
+                        if (warmed.size() >= MAX_WARMED_TILES) {
+                            warmed.clear();
+                        }
+                        warmed.add(url.toString());
+                        loaded++;
+                    } catch (IOException e) {
+                        Log.w(App.LOG_TAG, "Could not warm map tile " + url, e);
+                    }
+                }
+            }
+            Log.d(App.LOG_TAG, "Warmed " + loaded + " preset tiles in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        });
+    }
+
+    public void cancel() {
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * @return the x and y of the tiles covering the bounds, nearest the center first
+     */
+    static List<int[]> getTiles(LatLngBounds bounds, int zoom) {
+        int scale = 1 << zoom;
+        int west = getTileX(bounds.southwest.longitude, scale);
+        int east = getTileX(bounds.northeast.longitude, scale);
+        int north = getTileY(bounds.northeast.latitude, scale);
+        int south = getTileY(bounds.southwest.latitude, scale);
+        if (east < west) {
+            // The bounds cross the antimeridian, which isn't worth handling here
+            return Collections.emptyList();
+        }
+
+        final double centerX = (west + east) / 2.0;
+        final double centerY = (north + south) / 2.0;
+        List<int[]> tiles = new ArrayList<>();
+        for (int x = west; x <= east; x++) {
+            for (int y = north; y <= south; y++) {
+                tiles.add(new int[]{x, y});
+            }
+        }
+        Collections.sort(tiles, (a, b) -> Double.compare(
+                Math.hypot(a[0] - centerX, a[1] - centerY), Math.hypot(b[0] - centerX, b[1] - centerY)));
+        return tiles.size() > MAX_TILES_PER_PRESET ? tiles.subList(0, MAX_TILES_PER_PRESET) : tiles;
+    }
+
+    private static int getTileX(double longitude, int scale) {
+        return clamp((int) Math.floor((longitude + 180) / 360 * scale), scale);
+    }
+
+    private static int getTileY(double latitude, int scale) {
+        double lat = Math.toRadians(latitude);
+        double y = (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+        return clamp((int) Math.floor(y * scale), scale);
+    }
+
+    private static int clamp(int tile, int scale) {
+        return Math.max(0, Math.min(scale - 1, tile));
+    }
+}
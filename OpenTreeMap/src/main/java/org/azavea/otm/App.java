@@ -1,11 +1,13 @@
 package org.azavea.otm;
 
 import android.app.Activity;
+import android.app.ActivityManager;
 import android.app.Application;
 import android.app.Fragment;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
+import android.net.http.HttpResponseCache;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler.Callback;
@@ -25,6 +27,14 @@ import org.azavea.helpers.Logger;
 import org.azavea.lists.NearbyList;
 import org.azavea.otm.data.InstanceInfo;
 import org.azavea.otm.data.User;
+import org.azavea.otm.images.BitmapPool;
+import org.azavea.otm.images.ImageDiskCache;
+import org.azavea.otm.images.ImageLoader;
+import org.azavea.otm.images.ImageMemoryCache;
+import org.azavea.otm.images.PhotoUploadQueue;
+import org.azavea.otm.images.PhotoUploadStore;
+import org.azavea.otm.location.FusedLocationSource;
+import org.azavea.otm.location.LocationService;
 import org.azavea.otm.rest.RequestGenerator;
 import org.azavea.otm.rest.handlers.RestHandler;
 import org.json.JSONException;
@@ -32,6 +42,8 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 
@@ -45,6 +57,13 @@ public class App extends Application {
     public static final String LOG_TAG = "AZ_OTM";
     public static final String INSTANCE_CODE = "instance_code";
 
+    private static final long HTTP_CACHE_SIZE = 20 * 1024 * 1024;
+
+    // The share of the app's memory that decoded images may use
+    private static final int IMAGE_CACHE_FRACTION = 8;
+    private static final long IMAGE_DISK_CACHE_SIZE = 10 * 1024 * 1024;
+    private static final int BITMAP_POOL_FRACTION = 4;
+
     private static App appInstance = null;
     private static FilterManager filterManager = null;
     private static FieldManager fieldManager = null;
@@ -58,6 +77,11 @@ public class App extends Application {
 
     private LoginManager loginManager = null;
     private NearbyList nearbyList = null;
+    private LocationService locationService = null;
+    private ImageLoader imageLoader = null;
+    private BitmapPool bitmapPool = null;
+    private PhotoUploadQueue photoUploadQueue = null;
+    private int startedActivities = 0;
     private Tracker apptracker = null;
 
     public static App getAppInstance() {
@@ -152,8 +176,63 @@ public class App extends Application {
         // the app can try to auto log in on any saved credentials
         getLoginManager();
         loadPendingStatus();
+        setupHttpCache();
         setupRollbarLogging();
         setupGoogleAnalytics();
+        trackForeground();
+    }
+
+    /**
+     * Keep track of whether any activity is started, so location updates can use less power
+     * while the app is in the background
+     */
+    private void trackForeground() {
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                if (startedActivities++ == 0) {
+                    getLocationService().setInBackground(false);
+                }
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                if (--startedActivities == 0) {
+                    getLocationService().setInBackground(true);
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+
+    /**
+     * Cache responses to HttpURLConnection requests, which includes the map tiles
+     */
+    private void setupHttpCache() {
+        try {
+            HttpResponseCache.install(new File(getCacheDir(), "http"), HTTP_CACHE_SIZE);
+        } catch (IOException e) {
+            Logger.warning("Could not create the HTTP response cache", e);
+        }
     }
 
     private void setupRollbarLogging() {
@@ -215,6 +294,68 @@ public class App extends Application {
         }
     }
 
+    synchronized public void sendTiming(@NonNull String category, @NonNull String variable, long millis) {
+        if (apptracker != null) {
+            apptracker.send(new HitBuilders.TimingBuilder()
+                    .setCategory(category)
+                    .setVariable(variable)
+                    .setValue(millis)
+                    .build());
+        }
+    }
+
+    /**
+     * Static access to the location updates shared by the whole app
+     */
+    public static LocationService getLocationService() {
+        App app = getAppInstance();
+        if (app.locationService == null) {
+            app.locationService = new LocationService(new FusedLocationSource(app));
+        }
+        return app.locationService;
+    }
+
+    /**
+     * Static access to the tree images shared by the whole app
+     */
+    public static ImageLoader getImageLoader() {
+        App app = getAppInstance();
+        if (app.imageLoader == null) {
+            ActivityManager activityManager = (ActivityManager) app.getSystemService(ACTIVITY_SERVICE);
+            int memoryBytes = activityManager.getMemoryClass() * 1024 * 1024;
+            app.imageLoader = new ImageLoader(
+                    new ImageMemoryCache(memoryBytes / IMAGE_CACHE_FRACTION),
+                    new ImageDiskCache(new File(app.getCacheDir(), "images"), IMAGE_DISK_CACHE_SIZE));
+        }
+        return app.imageLoader;
+    }
+
+    /**
+     * Static access to the bitmaps kept for decoding and rotating photos into
+     */
+    public static BitmapPool getBitmapPool() {
+        App app = getAppInstance();
+        if (app.bitmapPool == null) {
+            ActivityManager activityManager = (ActivityManager) app.getSystemService(ACTIVITY_SERVICE);
+            int memoryBytes = activityManager.getMemoryClass() * 1024 * 1024;
+            app.bitmapPool = new BitmapPool(memoryBytes / BITMAP_POOL_FRACTION);
+        }
+        return app.bitmapPool;
+    }
+
+    /**
+     * Static access to the tree photos waiting to be uploaded
+     */
+    public static PhotoUploadQueue getPhotoUploadQueue() {
+        App app = getAppInstance();
+        if (app.photoUploadQueue == null) {
+            app.photoUploadQueue = new PhotoUploadQueue(app,
+                    new PhotoUploadStore(app, new File(app.getFilesDir(), "photo_uploads")),
+                    getBitmapPool());
+        }
+        return app.photoUploadQueue;
+    }
+
     public static NearbyList getNearbyList(Context context) {
         App app = getAppInstance();
         if (app.nearbyList == null) {
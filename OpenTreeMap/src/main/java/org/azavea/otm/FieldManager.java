@@ -2,8 +2,10 @@ package org.azavea.otm;
 
 import org.azavea.helpers.Logger;
 import org.azavea.otm.data.InstanceInfo;
+import org.azavea.otm.fields.EcoBenefitRows;
 import org.azavea.otm.fields.Field;
 import org.azavea.otm.fields.FieldGroup;
+import org.azavea.otm.fields.FieldRenderPlan;
 import org.azavea.otm.fields.UDFCollectionFieldGroup;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -26,12 +28,20 @@ public class FieldManager {
     // Ordered list of display keys for plot eco benefits
     private String[] ecoKeys;
 
+    // Builds the eco benefit rows for plots, in ecoKeys order, and caches them
+    private EcoBenefitRows ecoBenefitRows;
+
+    // Display fields arranged for rendering, and indexed by key
+    private FieldRenderPlan renderPlan;
+
     public FieldManager(InstanceInfo instance)
             throws Exception {
 
         setBaseFieldDefinitions(instance.getFieldDefinitions());
         loadFieldDefinitions(instance.getDisplayFieldKeys());
         loadEcoBenefitKeys(instance.getPlotEcoFields());
+        renderPlan = new FieldRenderPlan(allDisplayFields);
+        ecoBenefitRows = new EcoBenefitRows(ecoKeys);
     }
 
     private void loadEcoBenefitKeys(JSONObject plotEcoFields) {
@@ -90,12 +100,11 @@ public class FieldManager {
     }
 
     public Field getField(String name) {
-        for (FieldGroup group : allDisplayFields) {
-            if (group.getFields().containsKey(name)) {
-                return group.getFields().get(name);
-            }
-        }
-        return null;
+        return renderPlan.getField(name);
+    }
+
+    public FieldRenderPlan getRenderPlan() {
+        return renderPlan;
     }
 
     public FieldGroup[] getFieldGroups() {
@@ -106,4 +115,8 @@ public class FieldManager {
     public String[] getEcoKeys() {
         return ecoKeys;
     }
+
+    public EcoBenefitRows getEcoBenefitRows() {
+        return ecoBenefitRows;
+    }
 }
@@ -1,20 +1,27 @@
 package org.azavea.otm;
 
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler.Callback;
 import android.os.Message;
+import android.view.View;
 
 import com.atlassian.fugue.Either;
 
 import org.azavea.helpers.Logger;
 import org.azavea.otm.data.InstanceInfo;
-import org.azavea.otm.data.Species;
+import org.azavea.otm.data.PlotCache;
+import org.azavea.otm.data.SpeciesCatalog;
+import org.azavea.otm.data.SpeciesCatalogStore;
 import org.azavea.otm.data.SpeciesContainer;
+import org.azavea.otm.filters.ActiveFilters;
 import org.azavea.otm.filters.BaseFilter;
 import org.azavea.otm.filters.BooleanFilter;
 import org.azavea.otm.filters.ChoiceFilter;
 import org.azavea.otm.filters.DateRangeFilter;
 import org.azavea.otm.filters.DefaultFilter;
+import org.azavea.otm.filters.FilterPreset;
+import org.azavea.otm.filters.FilterPresetStore;
 import org.azavea.otm.filters.MissingFilter;
 import org.azavea.otm.filters.MultiChoiceFilter;
 import org.azavea.otm.filters.NumericRangeFilter;
@@ -26,8 +33,11 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,13 +48,28 @@ public class FilterManager {
     // All filters loaded from configuration file, set with the latest state
     private LinkedHashMap<String, BaseFilter> allFilters = new LinkedHashMap<>();
 
+    // Snapshot of the active filters, only rebuilt after the filters have been edited
+    private ActiveFilters activeFilters = ActiveFilters.NONE;
+    private boolean filtersEdited = true;
+
+    // Plots loaded so far, for estimating what the active filters match before the tiles load
+    private final PlotCache plotCache = new PlotCache();
+
+    private final FilterPresetStore presetStore;
+
     // List of all species received from the API
-    private LinkedHashMap<Integer, Species> species = new LinkedHashMap<>();
+    private SpeciesCatalog species = SpeciesCatalog.EMPTY;
+    private final SpeciesCatalogStore speciesStore;
+    private boolean loadingSpecies = false;
+    private final List<Callback> speciesCallbacks = new ArrayList<>();
 
     private final InstanceInfo instanceInfo;
 
     public FilterManager(InstanceInfo instanceInfo) {
         this.instanceInfo = instanceInfo;
+        this.speciesStore = new SpeciesCatalogStore(
+                new File(App.getAppInstance().getFilesDir(), "species"), instanceInfo.getInstanceId());
+        this.presetStore = new FilterPresetStore(App.getAppInstance(), instanceInfo.getInstanceId());
 
         final JSONObject filterDefinitions = instanceInfo.getSearchDefinitions();
         loadSpeciesList();
@@ -55,40 +80,114 @@ public class FilterManager {
         loadSpeciesList(null);
     }
 
+    /**
+     * Load species from the saved snapshot if there is one, then from the API if the snapshot is
+     * missing or out of date.  The callback is notified as soon as any species are available.
+     */
     public void loadSpeciesList(final Callback callback) {
 
         // If species were already lazy loaded, return immediately
-        if (species.size() > 0 && callback != null) {
-            handleSpeciesCallback(callback, true);
+        if (!species.isEmpty()) {
+            if (callback != null) {
+                handleSpeciesCallback(callback, true);
+            }
+            return;
+        }
+
+        if (callback != null) {
+            speciesCallbacks.add(callback);
+        }
+        // A load is already in progress, and will notify all waiting callbacks
+        if (loadingSpecies) {
             return;
         }
+        loadingSpecies = true;
+
+        new AsyncTask<Void, Void, SpeciesCatalogStore.Snapshot>() {
+            @Override
+            protected SpeciesCatalogStore.Snapshot doInBackground(Void... params) {
+                SpeciesCatalogStore.Snapshot snapshot = speciesStore.load();
+                if (snapshot != null) {
+                    snapshot.catalog.prepareCommonNameIndex();
+                }
+                return snapshot;
+            }
+
+            @Override
+            protected void onPostExecute(SpeciesCatalogStore.Snapshot snapshot) {
+                if (snapshot != null && !snapshot.catalog.isEmpty()) {
+                    species = snapshot.catalog;
+                    handleSpeciesCallbacks(true);
+
+                    if (snapshot.revision.equals(instanceInfo.getUniversalRevId())) {
+                        loadingSpecies = false;
+                        return;
+                    }
+                }
+                requestSpeciesList();
+            }
+        }.execute();
+    }
+
+    private void requestSpeciesList() {
+        final String revision = instanceInfo.getUniversalRevId();
 
         request.getAllSpecies(new ContainerRestHandler<SpeciesContainer>(
                 new SpeciesContainer()) {
 
             @Override
-            public void dataReceived(SpeciesContainer container) {
-                try {
-                    species = (LinkedHashMap<Integer, Species>) container
-                            .getAll();
-                    if (callback != null) {
-                        handleSpeciesCallback(callback, true);
+            public void dataReceived(final SpeciesContainer container) {
+                // The catalog is built and indexed for the species list before it is published
+                new AsyncTask<Void, Void, SpeciesCatalog>() {
+                    @Override
+                    protected SpeciesCatalog doInBackground(Void... params) {
+                        try {
+                            SpeciesCatalog catalog = container.getCatalog();
+                            catalog.prepareCommonNameIndex();
+                            return catalog;
+                        } catch (JSONException e) {
+                            Logger.error("Error in Species retrieval", e);
+                            return null;
+                        }
                     }
-                } catch (JSONException e) {
-                    Logger.error("Error in Species retrieval", e);
-                }
+
+                    @Override
+                    protected void onPostExecute(final SpeciesCatalog catalog) {
+                        loadingSpecies = false;
+                        if (catalog == null) {
+                            handleSpeciesCallbacks(false);
+                            return;
+                        }
+                        species = catalog;
+                        handleSpeciesCallbacks(true);
+                        AsyncTask.execute(() -> {
+                            try {
+                                speciesStore.save(revision, catalog);
+                            } catch (IOException e) {
+                                Logger.warning("Unable to save species list", e);
+                            }
+                        });
+                    }
+                }.execute();
             }
 
             @Override
             public void failure(Throwable e, String message) {
+                loadingSpecies = false;
                 Logger.error(message, e);
-                if (callback != null) {
-                    handleSpeciesCallback(callback, false);
-                }
+                handleSpeciesCallbacks(false);
             }
         });
     }
 
+    private void handleSpeciesCallbacks(boolean success) {
+        List<Callback> callbacks = new ArrayList<>(speciesCallbacks);
+        speciesCallbacks.clear();
+        for (Callback callback : callbacks) {
+            handleSpeciesCallback(callback, success);
+        }
+    }
+
     private void handleSpeciesCallback(Callback callback, boolean success) {
         Message resultMessage = new Message();
         Bundle data = new Bundle();
@@ -160,20 +259,105 @@ public class FilterManager {
     }
 
     /**
-     * All species objects indexed by their id.
+     * All species received from the API, indexed by their id.
      */
-    public LinkedHashMap<Integer, Species> getSpecies() {
+    public SpeciesCatalog getSpecies() {
         return species;
     }
 
+    public PlotCache getPlotCache() {
+        return plotCache;
+    }
+
     public LinkedHashMap<String, BaseFilter> getFilters() {
         return allFilters;
     }
 
+    /**
+     * The filter presets saved for this instance
+     */
+    public List<FilterPreset> getPresets() {
+        return presetStore.getPresets();
+    }
+
+    /**
+     * Save the filters, as edited in their views, as a preset, replacing any preset with the same
+     * name.  The edits are only applied while the preset is built, so the active filters stay as
+     * they were until the edits are applied.
+     */
+    public FilterPreset savePreset(String name, Map<BaseFilter, View> filterViews) {
+        Map<String, Object> currentStates = new HashMap<>();
+        for (BaseFilter filter : allFilters.values()) {
+            if (filter.isActive()) {
+                currentStates.put(filter.key, filter.getState());
+            }
+        }
+        for (Map.Entry<BaseFilter, View> filterView : filterViews.entrySet()) {
+            filterView.getKey().updateFromView(filterView.getValue());
+        }
+
+        FilterPreset preset = FilterPreset.create(name, allFilters.values(),
+                new ActiveFilters(activeFilters.version, buildActiveFilters(), buildActiveFilterDisplay()));
+
+        for (BaseFilter filter : allFilters.values()) {
+            filter.setState(currentStates.get(filter.key));
+        }
+        presetStore.put(preset);
+        return preset;
+    }
+
+    public void deletePreset(String name) {
+        presetStore.remove(name);
+    }
+
+    /**
+     * Set the filters to the values saved in a preset
+     */
+    public void applyPreset(FilterPreset preset) {
+        preset.applyTo(allFilters.values());
+        onFiltersEdited();
+    }
+
+    /**
+     * Mark the filters as edited, so the next snapshot of active filters is rebuilt from them
+     */
+    public void onFiltersEdited() {
+        filtersEdited = true;
+    }
+
+    /**
+     * @return the active filters.  The same snapshot is returned until the filters are edited in
+     * a way which changes what they match, and then a new one with a higher version.
+     */
+    public ActiveFilters getActiveFilterSnapshot() {
+        if (filtersEdited) {
+            filtersEdited = false;
+            ActiveFilters latest = new ActiveFilters(activeFilters.version + 1,
+                    buildActiveFilters(), buildActiveFilterDisplay());
+            if (!latest.sameFiltersAs(activeFilters)) {
+                activeFilters = latest;
+            }
+        }
+        return activeFilters;
+    }
+
     /**
      * Returns a comma separated string of active filter names
      */
     public String getActiveFilterDisplay() {
+        return getActiveFilterSnapshot().display;
+    }
+
+    /**
+     * Returns the active filters to serialize into a tiler query
+     * @return a list of filter objects. Some filters have to be grouped together into JSONArrays,
+     *         the others are returned as JSONObjects
+     */
+    public Collection<Either<JSONObject, JSONArray>> getActiveFilters() {
+        return getActiveFilterSnapshot().getFilters();
+    }
+
+    private String buildActiveFilterDisplay() {
         String display = "", sep = "";
         for (Map.Entry<String, BaseFilter> entry : allFilters.entrySet()) {
             BaseFilter filter = entry.getValue();
@@ -185,12 +369,7 @@ public class FilterManager {
         return display;
     }
 
-    /**
-     * Returns the active filters to serialize into a tiler query
-     * @return a list of filter objects. Some filters have to be grouped together into JSONArrays,
-     *         the others are returned as JSONObjects
-     */
-    public Collection<Either<JSONObject, JSONArray>> getActiveFilters() {
+    private Collection<Either<JSONObject, JSONArray>> buildActiveFilters() {
         final List<Either<JSONObject, JSONArray>> filterObjects = new ArrayList<>();
 
         // Right now the only default filters are for Alerts search.
@@ -95,6 +95,9 @@ public class LoginManager {
                     Logger.error("Error setting user password", e);
                 }
 
+                // Photos this user added before the app last closed can be uploaded now
+                App.getPhotoUploadQueue().resume();
+
                 data.putBoolean(SUCCESS_KEY, true);
                 handleCallback(data);
             }
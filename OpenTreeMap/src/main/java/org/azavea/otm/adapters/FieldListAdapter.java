@@ -0,0 +1,190 @@
+package org.azavea.otm.adapters;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import com.google.common.base.Supplier;
+
+import org.azavea.otm.R;
+import org.azavea.otm.data.Plot;
+import org.azavea.otm.fields.FieldDisplayRow;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Displays the field rows of a plot in view mode, recycling row views by row type.
+ * <p>
+ * Each row view is tagged with the row it is showing, so when the rows are replaced after an
+ * edit, a recycled view is only bound again if its row actually changed.
+ */
+public class FieldListAdapter extends BaseAdapter {
+    private static final int VIEW_TYPE_COUNT = FieldDisplayRow.Type.values().length;
+
+    private final Activity activity;
+    private final LayoutInflater inflater;
+
+    private Plot plot;
+    private List<FieldDisplayRow> rows = Collections.emptyList();
+
+    // UDF collection groups build their own views, with "show more" state, so those views are
+    // kept for as long as their row is unchanged instead of being recycled
+    private final Map<FieldDisplayRow, View> collectionViews = new HashMap<>();
+
+    public FieldListAdapter(Activity activity) {
+        this.activity = activity;
+        this.inflater = activity.getLayoutInflater();
+    }
+
+    public void setRows(Plot plot, List<FieldDisplayRow> rows) {
+        this.plot = plot;
+        this.rows = rows;
+        collectionViews.keySet().retainAll(new HashSet<>(rows));
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return rows.size();
+    }
+
+    @Override
+    public FieldDisplayRow getItem(int position) {
+        return rows.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return VIEW_TYPE_COUNT;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        FieldDisplayRow row = getItem(position);
+        return row.type == FieldDisplayRow.Type.COLLECTION ? IGNORE_ITEM_VIEW_TYPE : row.type.ordinal();
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        // Rows aren't selectable, the buttons within them handle clicks
+        return false;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        FieldDisplayRow row = getItem(position);
+
+        if (row.type == FieldDisplayRow.Type.COLLECTION) {
+            View view = collectionViews.get(row);
+            if (view == null) {
+                view = row.group.renderForDisplay(inflater, plot, activity, parent);
+                if (view == null) {
+                    view = new View(activity);
+                }
+                collectionViews.put(row, view);
+            }
+            return view;
+        }
+
+        View view = convertView;
+        if (view == null) {
+            view = inflater.inflate(getLayoutId(row.type), parent, false);
+        }
+        if (!row.equals(view.getTag(R.id.field_row_tag))) {
+            bindRow(view, row, () -> plot, activity);
+            view.setTag(R.id.field_row_tag, row);
+        }
+        return view;
+    }
+
+    public static int getLayoutId(FieldDisplayRow.Type type) {
+        switch (type) {
+            case GROUP_HEADER:
+                return R.layout.plot_field_group_header;
+            case SPECIES:
+                return R.layout.plot_field_species_row;
+            case ECO:
+                return R.layout.plot_ecofield_row;
+            default:
+                return R.layout.plot_field_row;
+        }
+    }
+
+    /**
+     * Show a row in a view inflated from {@link #getLayoutId}
+     *
+     * @param plot supplies the plot when a pending edit button is clicked, so that a view which
+     *             is kept across reloads doesn't hold on to an old plot
+     */
+    public static void bindRow(View view, FieldDisplayRow row, Supplier<Plot> plot, Activity activity) {
+        switch (row.type) {
+            case GROUP_HEADER:
+                ((TextView) view.findViewById(R.id.group_name)).setText(row.label);
+                break;
+            case SPECIES:
+                bindLabelAndValue(view.findViewById(R.id.scientific_name_row),
+                        activity.getString(R.string.scientific_name), row.value);
+                bindLabelAndValue(view.findViewById(R.id.common_name_row),
+                        activity.getString(R.string.common_name), row.secondaryValue);
+                break;
+            case ECO:
+                bindLabelAndValue(view, row.label, row.value);
+                ((TextView) view.findViewById(R.id.field_money)).setText(
+                        row.secondaryValue + " " + activity.getString(R.string.eco_currencey_saved_text));
+                break;
+            case FIELD:
+                bindFieldRow(view, row, plot, activity);
+                break;
+        }
+    }
+
+    private static void bindFieldRow(View view, FieldDisplayRow row, Supplier<Plot> plot, Activity activity) {
+        bindLabelAndValue(view, row.label, row.value);
+
+        // Recycled views may have been showing a row with different buttons, so always reset them
+        View pendingButton = view.findViewById(R.id.pending);
+        if (row.pending) {
+            pendingButton.setOnClickListener(v -> row.field.showPendingEdits(plot.get(), activity));
+            pendingButton.setVisibility(View.VISIBLE);
+        } else {
+            pendingButton.setOnClickListener(null);
+            pendingButton.setVisibility(View.INVISIBLE);
+        }
+
+        // If the field has a URL attached to it as an info description (IE for pests) display the link.
+        View infoButton = view.findViewById(R.id.info);
+        if (!TextUtils.isEmpty(row.infoUrl)) {
+            infoButton.setOnClickListener(v ->
+                    activity.startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(row.infoUrl))));
+            infoButton.setVisibility(View.VISIBLE);
+        } else {
+            infoButton.setOnClickListener(null);
+            infoButton.setVisibility(View.GONE);
+        }
+    }
+
+    private static void bindLabelAndValue(View view, String label, String value) {
+        ((TextView) view.findViewById(R.id.field_label)).setText(label);
+        ((TextView) view.findViewById(R.id.field_value)).setText(value);
+    }
+}
@@ -0,0 +1,318 @@
+package org.azavea.otm.adapters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A prebuilt index for ranking a list of items against a query, tolerating typos.
+ * <p>
+ * The words of every item's toString() value are collected into a sorted vocabulary, with the
+ * items each word appears in, and each word's trigrams are indexed.  Each query word is scored
+ * against the vocabulary: an exact word scores highest, then a word it is the start of, then
+ * words within a small edit distance of it, found through shared trigrams and confirmed with a
+ * bounded edit distance.  The last query word is treated as a prefix, since it may still be
+ * being typed.  An item matches if every query word matched one of its words, and is ranked by
+ * its average word score, plus a boost for how often it has been picked before.
+ * <p>
+ * Searches are synchronized, since they share scratch space.
+ */
+public class FuzzyIndex {
+    private static final float EXACT_SCORE = 1.0f;
+    private static final float PREFIX_SCORE = 0.9f;
+    private static final float TYPO_SCORE = 0.7f;
+    private static final float TYPO_PENALTY = 0.25f;
+
+    // Picking an item 20 times is worth about as much as a prefix match over a typo
+    private static final float USAGE_WEIGHT = 0.05f;
+
+    private final String[] vocabulary;
+    private final int[][] wordItems;
+    private final Map<String, int[]> trigramWords;
+    private final float[] boosts;
+
+    // Scratch space for searches, one slot per item
+    private final float[] wordScores;
+    private final int[] wordStamps;
+    private final float[] totals;
+    private final int[] matchedWords;
+    private final int[] touched;
+
+    /**
+     * @param items       the items to search, by the text of their toString() values
+     * @param usageCounts how many times each item has been picked, or null
+     */
+    public FuzzyIndex(List<?> items, int[] usageCounts) {
+        Map<String, List<Integer>> itemsByWord = new HashMap<>();
+        for (int item = 0; item < items.size(); item++) {
+            for (String word : splitWords(items.get(item).toString())) {
+                List<Integer> wordList = itemsByWord.get(word);
+                if (wordList == null) {
+                    wordList = new ArrayList<>(2);
+                    itemsByWord.put(word, wordList);
+                }
+                // Words are visited in item order, so a repeated word is always the last one added
+                if (wordList.isEmpty() || wordList.get(wordList.size() - 1) != item) {
+                    wordList.add(item);
+                }
+            }
+        }
+
+        vocabulary = itemsByWord.keySet().toArray(new String[itemsByWord.size()]);
+        Arrays.sort(vocabulary);
+        wordItems = new int[vocabulary.length][];
+
+        Map<String, List<Integer>> wordsByTrigram = new HashMap<>();
+        for (int word = 0; word < vocabulary.length; word++) {
+            List<Integer> wordList = itemsByWord.get(vocabulary[word]);
+            wordItems[word] = new int[wordList.size()];
+            for (int i = 0; i < wordList.size(); i++) {
+                wordItems[word][i] = wordList.get(i);
+            }
+            for (String trigram : trigrams(vocabulary[word])) {
+                List<Integer> trigramList = wordsByTrigram.get(trigram);
+                if (trigramList == null) {
+                    trigramList = new ArrayList<>();
+                    wordsByTrigram.put(trigram, trigramList);
+                }
+                if (trigramList.isEmpty() || trigramList.get(trigramList.size() - 1) != word) {
+                    trigramList.add(word);
+                }
+            }
+        }
+        trigramWords = new HashMap<>(wordsByTrigram.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : wordsByTrigram.entrySet()) {
+            int[] words = new int[entry.getValue().size()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = entry.getValue().get(i);
+            }
+            trigramWords.put(entry.getKey(), words);
+        }
+
+        boosts = new float[items.size()];
+        if (usageCounts != null) {
+            for (int item = 0; item < boosts.length; item++) {
+                boosts[item] = USAGE_WEIGHT * (float) Math.log1p(usageCounts[item]);
+            }
+        }
+
+        wordScores = new float[items.size()];
+        wordStamps = new int[items.size()];
+        totals = new float[items.size()];
+        matchedWords = new int[items.size()];
+        touched = new int[items.size()];
+    }
+
+    /**
+     * @return the positions of up to {@code limit} items which match the query, best first
+     */
+    public synchronized int[] rank(CharSequence query, int limit) {
+        List<String> queryWords = splitWords(query == null ? "" : query.toString());
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+
+        Arrays.fill(matchedWords, 0);
+        Arrays.fill(wordStamps, -1);
+        int matched = 0;
+        for (int q = 0; q < queryWords.size(); q++) {
+            boolean isLast = q == queryWords.size() - 1;
+            int touchedCount = scoreWord(queryWords.get(q), isLast, q);
+
+            // Only items which matched every earlier query word are still in the running.  They
+            // are moved to the front of the touched items, to be ranked after the last word.
+            matched = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int item = touched[i];
+                if (matchedWords[item] == q) {
+                    totals[item] = (q == 0 ? 0 : totals[item]) + wordScores[item];
+                    matchedWords[item] = q + 1;
+                    touched[matched++] = item;
+                }
+            }
+            if (matched == 0) {
+                return new int[0];
+            }
+        }
+
+        // Keep the best results in a min-heap, so the worst of them is the one replaced
+        final int words = queryWords.size();
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+                (a, b) -> compareRank(a, b, words));
+        for (int i = 0; i < matched; i++) {
+            best.add(touched[i]);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        int[] ranked = new int[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = best.poll();
+        }
+        return ranked;
+    }
+
+    /**
+     * Sorts worse items first.  Ties go to the item earlier in the list.
+     */
+    private int compareRank(int a, int b, int words) {
+        int result = Float.compare(totals[a] / words + boosts[a], totals[b] / words + boosts[b]);
+        if (result != 0) {
+            return result;
+        }
+        return a > b ? -1 : (a == b ? 0 : 1);
+    }
+
+    /**
+     * Record the best score of a query word for each item with a matching word
+     *
+     * @return the number of items which matched, which are put at the start of {@link #touched}
+     */
+    private int scoreWord(String queryWord, boolean isPrefix, int stamp) {
+        Map<Integer, Float> wordMatches = new HashMap<>();
+
+        // Exact and prefix matches are a run of the sorted vocabulary
+        int start = lowerBound(queryWord);
+        for (int word = start; word < vocabulary.length && vocabulary[word].startsWith(queryWord); word++) {
+            if (vocabulary[word].length() == queryWord.length()) {
+                wordMatches.put(word, EXACT_SCORE);
+            } else if (isPrefix) {
+                wordMatches.put(word, PREFIX_SCORE);
+            }
+        }
+
+        int maxEdits = getMaxEdits(queryWord);
+        if (maxEdits > 0) {
+            // Each edit can change at most three trigrams, so a word within the edit distance
+            // shares at least this many trigrams with the query word
+            List<String> queryTrigrams = trigrams(queryWord);
+            int minShared = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                int[] words = trigramWords.get(trigram);
+                if (words == null) {
+                    continue;
+                }
+                for (int word : words) {
+                    Integer count = shared.get(word);
+                    shared.put(word, count == null ? 1 : count + 1);
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+                int word = entry.getKey();
+                if (entry.getValue() < minShared || wordMatches.containsKey(word)) {
+                    continue;
+                }
+                int edits = editDistance(queryWord, vocabulary[word], maxEdits, isPrefix);
+                if (edits <= maxEdits) {
+                    wordMatches.put(word, TYPO_SCORE - TYPO_PENALTY * (edits - 1));
+                }
+            }
+        }
+
+        int touchedCount = 0;
+        for (Map.Entry<Integer, Float> entry : wordMatches.entrySet()) {
+            float score = entry.getValue();
+            for (int item : wordItems[entry.getKey()]) {
+                if (wordStamps[item] != stamp) {
+                    wordStamps[item] = stamp;
+                    wordScores[item] = score;
+                    touched[touchedCount++] = item;
+                } else if (score > wordScores[item]) {
+                    wordScores[item] = score;
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    private int lowerBound(String key) {
+        int position = Arrays.binarySearch(vocabulary, key);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    /**
+     * Short words have too many neighbors for typos in them to be worth matching
+     */
+    private static int getMaxEdits(String word) {
+        if (word.length() < 4) {
+            return 0;
+        }
+        return word.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein distance, giving up once it is certain to be over {@code max}
+     *
+     * @param isPrefix measure against the closest start of the word, rather than all of it
+     * @return the distance, or {@code max + 1} if it is more than that
+     */
+    static int editDistance(String query, String word, int max, boolean isPrefix) {
+        if (!isPrefix && Math.abs(query.length() - word.length()) > max) {
+            return max + 1;
+        }
+        // Rows are query characters, and columns are word characters
+        int[] previous = new int[word.length() + 1];
+        int[] current = new int[word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= word.length(); j++) {
+                int cost = query.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = previous[word.length()];
+        if (isPrefix) {
+            for (int j = 0; j < word.length(); j++) {
+                distance = Math.min(distance, previous[j]);
+            }
+        }
+        return Math.min(distance, max + 1);
+    }
+
+    /**
+     * The trigrams of a word, with a marker at the start so that the first letters count for more
+     */
+    private static List<String> trigrams(String word) {
+        String padded = "$$" + word;
+        List<String> trigrams = new ArrayList<>(word.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Lowercase runs of letters and digits
+     */
+    private static List<String> splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        String lower = text.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean isWordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -5,8 +5,6 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
-import android.widget.Filter;
-import android.widget.Filterable;
 import android.widget.TextView;
 
 import java.util.ArrayList;
@@ -14,16 +12,37 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-public class LinkedHashMapAdapter<T> extends BaseAdapter implements Filterable {
+public class LinkedHashMapAdapter<T> extends BaseAdapter {
 
     public enum FilterType {
         WORD_PREFIX,
         ANYWHERE
     }
 
-    private LinkedHashMap<CharSequence, List<T>> originalData = null;
+    public interface UsageCounter<T> {
+        /**
+         * @return how many times the item has been picked before
+         */
+        int getCount(T item);
+    }
+
+    private static final int RANKED_MATCH_LIMIT = 10;
+
     private List<Entry<T>> flattenedData;
 
+    // The unfiltered flattened list, with the positions in it of each item and of the separator
+    // above it, by item index in the search indexes
+    private final List<Entry<T>> allData;
+    private List<T> items = null;
+    private int[] itemPositions;
+    private int[] separatorPositions;
+    private SearchIndex searchIndex = null;
+
+    // Ranked fuzzy matches are shown above the other matches when a title has been set
+    private CharSequence rankedTitle = null;
+    private UsageCounter<T> usageCounter = null;
+    private FuzzyIndex fuzzyIndex = null;
+
     private LayoutInflater inflator;
 
     private int separatorRowLayoutId;
@@ -31,7 +50,8 @@ public class LinkedHashMapAdapter<T> extends BaseAdapter implements Filterable {
     private int elementRowLayoutId;
     private int elementRowTextViewId;
 
-    private Filter filter = null;
+    private final ListFilterEngine<List<Entry<T>>> filterEngine =
+            new ListFilterEngine<>(this::getFilteredList, this::publishResults);
     private FilterType filterType = FilterType.WORD_PREFIX;
 
     private static final int ITEM_VIEW_TYPE_ELEMENT = 0;
@@ -46,8 +66,8 @@ public class LinkedHashMapAdapter<T> extends BaseAdapter implements Filterable {
                                 int elementRowLayoutId, int elementRowTextViewId) {
         this.inflator = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
 
-        this.originalData = data;
-        this.flattenedData = getFlattenedList(data);
+        this.allData = getFlattenedList(data);
+        this.flattenedData = allData;
 
         this.separatorRowLayoutId = separatorRowLayoutId;
         this.separatorRowTextViewId = separatorRowTextViewId;
@@ -131,8 +151,70 @@ public class LinkedHashMapAdapter<T> extends BaseAdapter implements Filterable {
         return convertView;
     }
 
-    public void setFilterType(FilterType filterType) {
+    public synchronized void setFilterType(FilterType filterType) {
         this.filterType = filterType;
+        this.searchIndex = null;
+    }
+
+    /**
+     * Show the best typo tolerant matches, ranked, in their own section above the other matches
+     *
+     * @param title        the title of the ranked section
+     * @param usageCounter ranks items which have been picked often higher, may be null
+     */
+    public synchronized void setRankedMatches(CharSequence title, UsageCounter<T> usageCounter) {
+        this.rankedTitle = title;
+        this.usageCounter = usageCounter;
+        this.fuzzyIndex = null;
+    }
+
+    /**
+     * The index is built the first time the list is filtered, which happens on the filter
+     * engine's background thread rather than while the list is being shown.
+     */
+    private synchronized SearchIndex getSearchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new SearchIndex(getItems(), filterType);
+        }
+        return searchIndex;
+    }
+
+    /**
+     * @return the ranked match index, or null if ranked matches aren't shown
+     */
+    private synchronized FuzzyIndex getFuzzyIndex() {
+        if (fuzzyIndex == null && rankedTitle != null) {
+            List<T> values = getItems();
+            int[] usageCounts = null;
+            if (usageCounter != null) {
+                usageCounts = new int[values.size()];
+                for (int i = 0; i < usageCounts.length; i++) {
+                    usageCounts[i] = usageCounter.getCount(values.get(i));
+                }
+            }
+            fuzzyIndex = new FuzzyIndex(values, usageCounts);
+        }
+        return fuzzyIndex;
+    }
+
+    private synchronized List<T> getItems() {
+        if (items == null) {
+            items = new ArrayList<>(allData.size());
+            itemPositions = new int[allData.size()];
+            separatorPositions = new int[allData.size()];
+            int separator = 0;
+            for (int i = 0; i < allData.size(); i++) {
+                T value = allData.get(i).value;
+                if (value == null) {
+                    separator = i;
+                } else {
+                    itemPositions[items.size()] = i;
+                    separatorPositions[items.size()] = separator;
+                    items.add(value);
+                }
+            }
+        }
+        return items;
     }
 
     /**
@@ -155,88 +237,62 @@ public class LinkedHashMapAdapter<T> extends BaseAdapter implements Filterable {
         return list;
     }
 
-    @Override
-    public Filter getFilter() {
-        if (filter == null) {
-            filter = new LinkedHashMapFilter();
-        }
-        return filter;
+    /**
+     * Filter the list by the given text in the background, once the user stops typing.  Must be
+     * called on the UI thread.
+     */
+    public void filter(CharSequence text) {
+        filterEngine.filter(text);
     }
 
     /**
-     * The below was adapted from the ArrayFilter inner class of ArrayAdapter, which is
-     * unfortunately private.
+     * Drop any filtering which hasn't been shown yet, e.g. when the list is going away
      */
-    private class LinkedHashMapFilter extends Filter {
-        @Override
-        protected FilterResults performFiltering(CharSequence sequence) {
-            FilterResults results;
-
-            LinkedHashMap<CharSequence, List<T>> newData;
-            synchronized (this) {
-                newData = new LinkedHashMap<>(originalData.size());
-                for (CharSequence key : originalData.keySet()) {
-                    // Make a copy of each list
-                    newData.put(key, new ArrayList<>(originalData.get(key)));
-                }
-            }
+    public void cancelFiltering() {
+        filterEngine.cancel();
+    }
 
-            if (sequence == null || sequence.length() == 0) {
-                results = getFilterResults(newData);
-            } else {
-                String substring = sequence.toString().toLowerCase();
-
-                for (Map.Entry<CharSequence, List<T>> entry : newData.entrySet()) {
-                    final List<T> values = entry.getValue();
-                    final ArrayList<T> newValues = new ArrayList<>();
-
-                    for (T value : values) {
-                        final String valueText = value.toString().toLowerCase();
-
-                        // First match against the whole, non-splitted value
-                        if (valueText.startsWith(substring)) {
-                            newValues.add(value);
-                        } else if (filterType == FilterType.WORD_PREFIX) {
-                            final String[] words = valueText.split(" ");
-
-                            // Start at index 0, in case valueText starts with space(s)
-                            for (String word : words) {
-                                if (word.startsWith(substring)) {
-                                    newValues.add(value);
-                                    break;
-                                }
-                            }
-                        } else if (filterType == FilterType.ANYWHERE && valueText.contains(substring)) {
-                            newValues.add(value);
-                        }
-                    }
-                    newData.put(entry.getKey(), newValues);
-                }
+    /**
+     * Runs on the filter engine's background thread
+     */
+    private List<Entry<T>> getFilteredList(CharSequence sequence) {
+        if (sequence == null || sequence.length() == 0) {
+            return allData;
+        }
 
-                results = getFilterResults(newData);
+        List<Entry<T>> newData = new ArrayList<>();
+        FuzzyIndex ranker = getFuzzyIndex();
+        if (ranker != null) {
+            int[] ranked = ranker.rank(sequence, RANKED_MATCH_LIMIT);
+            if (ranked.length > 0) {
+                newData.add(new Entry<>(rankedTitle, null));
+                for (int item : ranked) {
+                    newData.add(new Entry<>(rankedTitle, items.get(item)));
+                }
             }
-
-            return results;
         }
 
-        private FilterResults getFilterResults(LinkedHashMap<CharSequence, List<T>> newData) {
-            FilterResults results;
-            results = new FilterResults();
-            List<Entry<T>> flatList = getFlattenedList(newData);
-            results.values = flatList;
-            results.count = flatList.size();
-            return results;
+        // Rebuild the flattened list from the prebuilt entries, with a separator above the
+        // first match in each section
+        int[] matches = getSearchIndex().search(sequence);
+        int lastSeparator = -1;
+        for (int item : matches) {
+            if (separatorPositions[item] != lastSeparator) {
+                lastSeparator = separatorPositions[item];
+                newData.add(allData.get(lastSeparator));
+            }
+            newData.add(allData.get(itemPositions[item]));
         }
+        return newData;
+    }
 
-        @Override
-        protected void publishResults(CharSequence constraint, FilterResults results) {
-            //noinspection unchecked
-            flattenedData = (List<Entry<T>>) results.values;
-            if (results.count > 0) {
-                notifyDataSetChanged();
-            } else {
-                notifyDataSetInvalidated();
-            }
+    private void publishResults(CharSequence query, List<Entry<T>> results) {
+        // Swapped in whole, on the UI thread, so the list never sees a partial result
+        flattenedData = results;
+        if (!results.isEmpty()) {
+            notifyDataSetChanged();
+        } else {
+            notifyDataSetInvalidated();
         }
     }
 
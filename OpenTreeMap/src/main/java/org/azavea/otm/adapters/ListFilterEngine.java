@@ -0,0 +1,98 @@
+package org.azavea.otm.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.common.base.Function;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs list filter queries in the background while the user types.
+ * <p>
+ * A query only starts once typing pauses for {@link #DEBOUNCE_MS}, and each query supersedes
+ * the ones before it: a pending query is dropped, one that is waiting to run is cancelled, and
+ * results from one that was already running are discarded when they arrive.  Every query is
+ * given a generation number, and only the results of the latest generation are published, on
+ * the UI thread, so results can't land out of order.
+ *
+ * @param <R> the type of a query's results
+ */
+public class ListFilterEngine<R> {
+    public static final long DEBOUNCE_MS = 150;
+
+    // Queries are quick once an index has been built, so one thread shared by all lists is
+    // enough, and keeps queries from different lists from competing with each other
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public interface ResultListener<R> {
+        void onResults(CharSequence query, R results);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Function<CharSequence, R> query;
+    private final ResultListener<R> listener;
+
+    // Only read and written on the UI thread
+    private int generation = 0;
+    private Runnable pending = null;
+    private Future<?> running = null;
+
+    /**
+     * @param query    run in the background to get the results for the filter text
+     * @param listener receives the results of the latest query on the UI thread
+     */
+    public ListFilterEngine(Function<CharSequence, R> query, ResultListener<R> listener) {
+        this.query = query;
+        this.listener = listener;
+    }
+
+    /**
+     * Filter by the given text, superseding any earlier query.  Must be called on the UI thread.
+     */
+    public void filter(CharSequence text) {
+        final CharSequence constraint = text == null ? "" : text.toString();
+        final int queryGeneration = supersede();
+
+        pending = () -> {
+            pending = null;
+            running = executor.submit(() -> run(constraint, queryGeneration));
+        };
+        // Clearing the filter shows everything again, so there's no reason to wait
+        handler.postDelayed(pending, constraint.length() == 0 ? 0 : DEBOUNCE_MS);
+    }
+
+    /**
+     * Drop any query which hasn't published its results yet.  Must be called on the UI thread.
+     */
+    public void cancel() {
+        supersede();
+    }
+
+    private int supersede() {
+        generation++;
+        if (pending != null) {
+            handler.removeCallbacks(pending);
+            pending = null;
+        }
+        if (running != null) {
+            running.cancel(false);
+            running = null;
+        }
+        return generation;
+    }
+
+    private void run(CharSequence constraint, int queryGeneration) {
+        final R results = query.apply(constraint);
+
+        handler.post(() -> {
+            if (queryGeneration != generation) {
+                return;
+            }
+            running = null;
+            listener.onResults(constraint, results);
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package org.azavea.otm.adapters;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.ImageView;
+
+import org.azavea.lists.data.DisplayableModel;
+import org.azavea.lists.data.DisplayablePlot;
+import org.azavea.otm.R;
+import org.azavea.otm.data.Plot;
+import org.azavea.otm.images.ImageLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of nearby plots, with a thumbnail of each tree's most recent photo
+ */
+public class NearbyPlotAdapter extends ArrayAdapter<DisplayableModel> {
+    private final ImageLoader imageLoader;
+    private final int thumbnailSize;
+
+    public NearbyPlotAdapter(Context context, List<DisplayableModel> rows, ImageLoader imageLoader) {
+        super(context, R.layout.nearby_list_item, android.R.id.text1, rows);
+        this.imageLoader = imageLoader;
+        this.thumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.nearby_thumbnail_size);
+    }
+
+    /**
+     * @return the size thumbnails are loaded at, in pixels, which prefetches should use too
+     */
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = super.getView(position, convertView, parent);
+        ImageView thumbnail = (ImageView) view.findViewById(R.id.thumbnail);
+
+        // The view may have been showing another plot's thumbnail
+        thumbnail.setImageResource(R.drawable.missing_tree_photo);
+        String url = getPlot(position).getThumbnailUrl();
+        if (url != null) {
+            imageLoader.load(url, thumbnail, thumbnailSize);
+        } else {
+            imageLoader.cancel(thumbnail);
+        }
+        return view;
+    }
+
+    /**
+     * @return the plots of the rows from first to last, inclusive, which exist
+     */
+    public List<Plot> getPlots(int first, int last) {
+        List<Plot> plots = new ArrayList<>();
+        for (int i = Math.max(0, first); i <= last && i < getCount(); i++) {
+            plots.add(getPlot(i));
+        }
+        return plots;
+    }
+
+    private Plot getPlot(int position) {
+        return ((DisplayablePlot) getItem(position)).getPlot();
+    }
+}
@@ -0,0 +1,222 @@
+package org.azavea.otm.adapters;
+
+import org.azavea.otm.adapters.LinkedHashMapAdapter.FilterType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A prebuilt index for filtering a list of items by the text of their toString() values.
+ * <p>
+ * Each item's text is lowercased once, when the index is built.  For word prefix searches the
+ * start of every word is put into a sorted suffix array, so a query is answered with two binary
+ * searches, and the matches are the contiguous run of suffixes between them.  Anywhere searches
+ * scan the lowercased text.  When a query extends the previous one, as it does while the user
+ * is typing, the search is narrowed to the previous matches instead of starting over.
+ * <p>
+ * Searches are synchronized, since each one updates the state reused by the next.
+ */
+public class SearchIndex {
+    private static final int[] NONE = new int[0];
+
+    private final FilterType filterType;
+    private final String[] texts;
+
+    // Word start suffixes, sorted by the text which follows them.  Only built for word prefix
+    // searches.
+    private final int[] suffixItems;
+    private final int[] suffixOffsets;
+
+    // The previous search, which is reused when the next query extends it
+    private String lastQuery = null;
+    private int lastLow;
+    private int lastHigh;
+    private int[] lastMatches;
+
+    public SearchIndex(List<?> items, FilterType filterType) {
+        this.filterType = filterType;
+        this.texts = new String[items.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = items.get(i).toString().toLowerCase();
+        }
+
+        if (filterType == FilterType.WORD_PREFIX) {
+            int count = 0;
+            for (String text : texts) {
+                count += countWordStarts(text);
+            }
+            int[] starts = new int[count];
+            int[] offsets = new int[count];
+            findWordStarts(starts, offsets);
+
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compareSuffixes(starts[a], offsets[a], starts[b], offsets[b]));
+
+            suffixItems = new int[count];
+            suffixOffsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                suffixItems[i] = starts[order[i]];
+                suffixOffsets[i] = offsets[order[i]];
+            }
+        } else {
+            suffixItems = null;
+            suffixOffsets = null;
+        }
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * @return the positions of the items which match the query, in ascending order.  An empty
+     * query matches every item.
+     */
+    public synchronized int[] search(CharSequence query) {
+        String q = query == null ? "" : query.toString().toLowerCase();
+        if (q.isEmpty()) {
+            lastQuery = null;
+            int[] all = new int[texts.length];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        boolean narrowing = lastQuery != null && q.startsWith(lastQuery);
+        int[] matches = filterType == FilterType.WORD_PREFIX
+                ? searchWordPrefix(q, narrowing)
+                : searchAnywhere(q, narrowing);
+
+        lastQuery = q;
+        lastMatches = matches;
+        return matches;
+    }
+
+    private int[] searchWordPrefix(String q, boolean narrowing) {
+        int low = narrowing ? lastLow : 0;
+        int high = narrowing ? lastHigh : suffixItems.length;
+
+        // The suffixes which start with the query form one run; find its first and last + 1
+        int start = low;
+        int end = high;
+        while (start < end) {
+            int mid = (start + end) >>> 1;
+            if (compareToQuery(mid, q) < 0) {
+                start = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        end = high;
+        int searchFrom = start;
+        while (searchFrom < end) {
+            int mid = (searchFrom + end) >>> 1;
+            if (compareToQuery(mid, q) <= 0) {
+                searchFrom = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        lastLow = start;
+        lastHigh = end;
+
+        if (start == end) {
+            return NONE;
+        }
+
+        // An item can match at more than one of its words, and the run isn't in item order
+        BitSet matched = new BitSet(texts.length);
+        for (int i = start; i < end; i++) {
+            matched.set(suffixItems[i]);
+        }
+        int[] matches = new int[matched.cardinality()];
+        int count = 0;
+        for (int item = matched.nextSetBit(0); item >= 0; item = matched.nextSetBit(item + 1)) {
+            matches[count++] = item;
+        }
+        return matches;
+    }
+
+    private int[] searchAnywhere(String q, boolean narrowing) {
+        int candidates = narrowing ? lastMatches.length : texts.length;
+        int[] matches = new int[candidates];
+        int count = 0;
+        for (int i = 0; i < candidates; i++) {
+            int item = narrowing ? lastMatches[i] : i;
+            if (texts[item].contains(q)) {
+                matches[count++] = item;
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * @return 0 if the suffix starts with the query, otherwise which side of the query it sorts on
+     */
+    private int compareToQuery(int suffix, String q) {
+        String text = texts[suffixItems[suffix]];
+        int offset = suffixOffsets[suffix];
+        int length = Math.min(text.length() - offset, q.length());
+        for (int i = 0; i < length; i++) {
+            int diff = text.charAt(offset + i) - q.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        // A suffix which is shorter than the query, and equal to the start of it, sorts before it
+        return length < q.length() ? -1 : 0;
+    }
+
+    private int compareSuffixes(int itemA, int offsetA, int itemB, int offsetB) {
+        String a = texts[itemA];
+        String b = texts[itemB];
+        int lengthA = a.length() - offsetA;
+        int lengthB = b.length() - offsetB;
+        int length = Math.min(lengthA, lengthB);
+        for (int i = 0; i < length; i++) {
+            int diff = a.charAt(offsetA + i) - b.charAt(offsetB + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * The start of the text, and every character after a space, begins a word.  The start is
+     * always included, since a query is matched against the whole value as well as its words.
+     */
+    private void findWordStarts(int[] items, int[] offsets) {
+        int count = 0;
+        for (int item = 0; item < texts.length; item++) {
+            String text = texts[item];
+            items[count] = item;
+            offsets[count++] = 0;
+            for (int i = 1; i < text.length(); i++) {
+                if (isWordStart(text, i)) {
+                    items[count] = item;
+                    offsets[count++] = i;
+                }
+            }
+        }
+    }
+
+    private static int countWordStarts(String text) {
+        int count = 1;
+        for (int i = 1; i < text.length(); i++) {
+            if (isWordStart(text, i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        return text.charAt(i - 1) == ' ' && text.charAt(i) != ' ';
+    }
+}
@@ -70,6 +70,17 @@ public class InstanceInfo extends Model {
         this.geoRevId = geoRevId;
     }
 
+    /**
+     * Changes whenever instance wide data, such as the species list, is modified on the server.
+     * May be null if the server does not provide it.
+     */
+    public String getUniversalRevId() {
+        if (data == null || data.isNull("universalRevHash")) {
+            return null;
+        }
+        return data.optString("universalRevHash");
+    }
+
     public int getInstanceId() {
         return instanceId;
     }
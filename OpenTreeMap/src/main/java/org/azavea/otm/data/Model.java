@@ -1,6 +1,8 @@
 package org.azavea.otm.data;
 
 
+import com.google.common.base.Joiner;
+
 import org.azavea.helpers.JSONHelper;
 import org.azavea.helpers.Logger;
 import org.azavea.otm.NestedJsonAndKey;
@@ -49,8 +51,14 @@ public abstract class Model {
      * value
      */
     public Object getValueForKey(String key) {
+        return getValueForKeyPath(key.split("\\."));
+    }
+
+    /**
+     * Return the value of a key which has already been split on '.'
+     */
+    public Object getValueForKeyPath(String[] keys) {
         try {
-            String[] keys = key.split("\\.");
             NestedJsonAndKey found = getValueForKey(keys, 0, data, false);
             if (found != null) {
                 return found.get();
@@ -58,7 +66,7 @@ public abstract class Model {
                 return null;
             }
         } catch (JSONException e) {
-            Logger.info("Could not find key: " + key + " on plot/tree object", e);
+            Logger.info("Could not find key: " + Joiner.on('.').join(keys) + " on plot/tree object", e);
             return null;
         }
     }
@@ -6,47 +6,50 @@ import java.util.Date;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * A single pending edit on a plot or tree field, decoded once from the pending edit JSON
+ */
 public class PendingEdit {
-    private JSONObject data;
+    private final int id;
+    private final String username;
+    private final String value;
+    private final String submitted;
+    private final JSONObject relatedFields;
 
-    public PendingEdit(JSONObject definition) {
-        data = definition;
+    public PendingEdit(JSONObject definition) throws JSONException {
+        id = definition.getInt("id");
+        username = definition.optString("username");
+        value = definition.isNull("value") ? null : definition.optString("value");
+        submitted = definition.optString("submitted");
+        relatedFields = definition.optJSONObject("related_fields");
     }
 
-    public String getUsername() throws JSONException {
-        return data.getString("username");
+    public String getUsername() {
+        return username;
     }
 
-    public String getValue() throws JSONException {
-        return data.getString("value");
+    public String getValue() {
+        return value;
     }
 
     public String getValue(String relatedField) {
-        try {
-            return data.getJSONObject("related_fields").getString(relatedField);
-        } catch (JSONException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        if (relatedFields == null || relatedFields.isNull(relatedField)) {
             return null;
         }
+        return relatedFields.optString(relatedField);
     }
 
-    public int getId() throws JSONException {
-        return data.getInt("id");
+    public int getId() {
+        return id;
     }
 
     public Date getSubmittedTime() throws Exception {
-        String when = data.getString("submitted");
         SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss'");
-        return format.parse(when);
+        return format.parse(submitted);
     }
 
     public void approve() throws Exception {
         // TODO
         throw new Exception("not implemented");
     }
-
-    public void setData(JSONObject data) {
-        this.data = data;
-    }
 }
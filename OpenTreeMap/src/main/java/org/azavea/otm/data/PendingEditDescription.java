@@ -1,51 +1,62 @@
 package org.azavea.otm.data;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import org.azavea.otm.App;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import android.util.Log;
-
+/**
+ * All of the pending edits for a single field key, decoded once when the plot is loaded.
+ * <p>
+ * Edits are ordered most recent first, and the list is immutable so that it can be shared
+ * between every view of the plot.
+ */
 public class PendingEditDescription {
 
-    private JSONObject data;
-    private String key;
+    private final String key;
+    private final String latestValue;
+    private final List<PendingEdit> edits;
 
-    public PendingEditDescription(String key, JSONObject definition) {
+    public PendingEditDescription(String key, JSONObject definition) throws JSONException {
         this.key = key;
-        this.data = definition;
+        this.latestValue = definition.isNull("latest_value") ? null : definition.optString("latest_value");
+
+        JSONArray rawEdits = definition.getJSONArray("pending_edits");
+        List<PendingEdit> parsedEdits = new ArrayList<>(rawEdits.length());
+        for (int i = 0; i < rawEdits.length(); i++) {
+            parsedEdits.add(new PendingEdit(rawEdits.getJSONObject(i)));
+        }
+        // Edit ids are assigned in order of submission
+        Collections.sort(parsedEdits, (a, b) -> b.getId() - a.getId());
+        this.edits = Collections.unmodifiableList(parsedEdits);
     }
 
     public String getKey() {
         return this.key;
     }
 
+    /**
+     * The value of the field as it would be if all pending edits were approved.
+     * The last approved value will show up if this is null
+     */
     public String getLatestValue() {
-        try {
-            return data.getString("latest_value");
-        } catch (Exception e) {
-            Log.e(App.LOG_TAG, "Unable to parse latest value for " + key, e);
-            // The last approved value will show up if we return null
-            return null;
-        }
+        return latestValue;
     }
 
     /**
-     * Get a list of all pending edits in order of submission
-     *
-     * @return
-     * @throws JSONException
+     * The value of the most recently submitted pending edit, or "" if there are none
      */
-    public List<PendingEdit> getPendingEdits() throws JSONException {
-        JSONArray rawEdits = data.getJSONArray("pending_edits");
-        List<PendingEdit> edits = new ArrayList<>(rawEdits.length());
-        for (int i = 0; i < rawEdits.length(); i++) {
-            edits.add(new PendingEdit(rawEdits.getJSONObject(i)));
-        }
+    public String getLatestPendingValue() {
+        return edits.isEmpty() ? "" : edits.get(0).getValue();
+    }
+
+    /**
+     * Get a list of all pending edits, most recent first
+     */
+    public List<PendingEdit> getPendingEdits() {
         return edits;
     }
 }
@@ -5,20 +5,20 @@ import android.location.Geocoder;
 import android.util.Log;
 
 import com.google.common.base.Joiner;
-import com.loopj.android.http.BinaryHttpResponseHandler;
 
 import org.azavea.helpers.JSONHelper;
 import org.azavea.helpers.Logger;
 import org.azavea.otm.App;
-import org.azavea.otm.rest.RequestGenerator;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.collect.Collections2.filter;
 import static com.google.common.collect.Lists.newArrayList;
@@ -38,13 +38,17 @@ public class Plot extends Model {
     public static final String PHOTO_IMAGE = "image";
     public static final String PHOTO_THUMBNAIL = "thumbnail";
 
-    private PendingStatus hasPending = PendingStatus.Unset;
     private JSONObject plotDetails = null;
     private Species species = null;
 
-    enum PendingStatus {
-        Pending, NoPending, Unset
-    }
+    // Created lazily on the first edit, so that it snapshots the plot as it was loaded
+    private PlotChangeSet changeSet = null;
+
+    // Pending edits indexed by field key, built once when the plot data is set
+    private Map<String, PendingEditDescription> pendingEdits = Collections.emptyMap();
+
+    // Decoded from the photos JSON on first use, and reset when the photos change
+    private List<TreePhoto> treePhotos = null;
 
     /**
      * When Requesting a plot tree photo, these are the valid image types
@@ -73,16 +77,31 @@ public class Plot extends Model {
     @Override
     public void setData(JSONObject data) {
         super.setData(data);
+        changeSet = null;
+        treePhotos = null;
         setupPlotDetails();
+        setupPendingEdits();
     }
 
     @Override
     public void setValueForKey(String key, Object value) throws Exception {
+        PlotChangeSet changes = getChangeSet();
         // Make a tree if this key is for a tree and this plot doesn't have a tree
         if (key.split("[.]")[0].equals("tree") && !hasTree() && !JSONObject.NULL.equals(value)) {
             this.createTree();
         }
         super.setValueForKey(key, value);
+        changes.record(key, value);
+    }
+
+    /**
+     * Get the key paths which have been edited since this plot was loaded
+     */
+    public PlotChangeSet getChangeSet() {
+        if (changeSet == null) {
+            changeSet = new PlotChangeSet(data);
+        }
+        return changeSet;
     }
 
     private void setupPlotDetails() {
@@ -102,6 +121,29 @@ public class Plot extends Model {
         }
     }
 
+    private void setupPendingEdits() {
+        JSONObject edits = data.optJSONObject("pending_edits");
+        if (edits == null || edits.length() == 0) {
+            pendingEdits = Collections.emptyMap();
+            return;
+        }
+
+        Map<String, PendingEditDescription> index = new HashMap<>(edits.length());
+        Iterator<String> keys = edits.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            JSONObject description = edits.optJSONObject(key);
+            if (description != null) {
+                try {
+                    index.put(key, new PendingEditDescription(key, description));
+                } catch (JSONException e) {
+                    Logger.error("Unable to read pending edits for " + key, e);
+                }
+            }
+        }
+        pendingEdits = Collections.unmodifiableMap(index);
+    }
+
     public int getId() throws JSONException {
         return plotDetails.getInt(ID);
     }
@@ -201,7 +243,9 @@ public class Plot extends Model {
     }
 
     public void setGeometry(Geometry geom) throws JSONException {
+        PlotChangeSet changes = getChangeSet();
         plotDetails.put(GEOM, geom.getData());
+        changes.record(PLOT + "." + GEOM, geom.getData());
     }
 
     /**
@@ -210,21 +254,7 @@ public class Plot extends Model {
      * @throws JSONException
      */
     public boolean hasPendingEdits() throws JSONException {
-        // Use the cache if available, this might be called a lot
-        if (hasPending != PendingStatus.Unset) {
-            return hasPending == PendingStatus.Pending;
-        }
-
-        boolean pendings = false;
-        if (!data.isNull("pending_edits")) {
-            if (data.getJSONObject("pending_edits").length() > 0) {
-                pendings = true;
-            }
-        }
-
-        // Cache for this instance
-        hasPending = pendings ? PendingStatus.Pending : PendingStatus.NoPending;
-        return pendings;
+        return !pendingEdits.isEmpty();
     }
 
     /**
@@ -236,13 +266,7 @@ public class Plot extends Model {
      * @throws JSONException
      */
     public PendingEditDescription getPendingEditForKey(String key) throws JSONException {
-        if (this.hasPendingEdits()) {
-            JSONObject edits = data.getJSONObject("pending_edits");
-            if (!edits.isNull(key)) {
-                return new PendingEditDescription(key, edits.getJSONObject(key));
-            }
-        }
-        return null;
+        return pendingEdits.get(key);
     }
 
     public boolean hasTree() {
@@ -253,46 +277,38 @@ public class Plot extends Model {
         this.setTree(new Tree());
     }
 
-    public JSONObject getMostRecentPhoto() {
-        JSONArray photos = data.optJSONArray(PHOTOS);
-        if (photos != null && photos.length() > 0 && this.hasTree()) {
-            List<JSONObject> photoObjects = new ArrayList<>(photos.length());
-            for (int i = 0; i < photos.length(); i++) {
-                JSONObject photo = photos.optJSONObject(i);
-                // If we start supporting multiple trees, we'll need to check the tree id here
-                if (photo != null && photo.optInt(ID) != 0 && photo.has(PHOTO_IMAGE) && photo.has(PHOTO_THUMBNAIL)) {
-                    photoObjects.add(photo);
-                }
-            }
-            return Collections.max(photoObjects, (a, b) -> a.optInt(ID) - b.optInt(ID));
+    /**
+     * All photos of this plot's tree, sorted by id so that the most recent is last
+     */
+    public List<TreePhoto> getTreePhotos() {
+        if (!this.hasTree()) {
+            return Collections.emptyList();
         }
-        return null;
+        if (treePhotos == null) {
+            treePhotos = TreePhoto.fromJSON(data.optJSONArray(PHOTOS));
+        }
+        return treePhotos;
     }
 
-    /**
-     * Get the most recent tree thumbnail for this plot, by way of an
-     * asynchronous response handler.
-     *
-     * @param handler image handler which will receive callback from async http
-     *                request
-     */
-    public void getTreeThumbnail(BinaryHttpResponseHandler handler) {
-        getTreeImage(PHOTO_THUMBNAIL, handler);
+    public TreePhoto getMostRecentPhoto() {
+        List<TreePhoto> photos = getTreePhotos();
+        return photos.isEmpty() ? null : photos.get(photos.size() - 1);
     }
 
-    public void getTreePhoto(BinaryHttpResponseHandler handler) {
-        getTreeImage(PHOTO_IMAGE, handler);
+    /**
+     * @return the url of the most recent photo's thumbnail, or null if the tree has no photos
+     */
+    public String getThumbnailUrl() {
+        TreePhoto photo = getMostRecentPhoto();
+        return photo == null ? null : photo.getThumbnailUrl();
     }
 
-    private void getTreeImage(String name, BinaryHttpResponseHandler handler) {
-        JSONObject photo = this.getMostRecentPhoto();
-        if (photo != null) {
-            String url = photo.optString(name);
-            if (url != null) {
-                RequestGenerator rg = new RequestGenerator();
-                rg.getImage(url, handler);
-            }
-        }
+    /**
+     * @return the url of the most recent photo at full size, or null if the tree has no photos
+     */
+    public String getPhotoUrl() {
+        TreePhoto photo = getMostRecentPhoto();
+        return photo == null ? null : photo.getImageUrl();
     }
 
     public void assignNewTreePhoto(JSONObject image) throws JSONException {
@@ -302,6 +318,7 @@ public class Plot extends Model {
             data.put(PHOTOS, photos);
         }
         photos.put(image);
+        treePhotos = null;
     }
 
     public String getScienticName() {
@@ -331,40 +348,7 @@ public class Plot extends Model {
      * @param pendingKey: the key to get pending edits for
      */
     public String getValueForLatestPendingEdit(String pendingKey) {
-        // get the pending edit description object for this plot
-        PendingEditDescription ped;
-        try {
-            ped = getPendingEditForKey(pendingKey);
-        } catch (JSONException e) {
-            Log.e(App.LOG_TAG, "JSON exception reading pending edit field", e);
-            return "";
-        }
-
-        // get a list of pending edits
-        List<PendingEdit> pendingEditList;
-        try {
-            pendingEditList = ped.getPendingEdits();
-        } catch (JSONException e) {
-            Log.e(App.LOG_TAG, "JSON exception reading pending edit field", e);
-            return "";
-        }
-
-        // I assert that the most recent one is the first one. (argh.)
-        PendingEdit mostRecentPendingEdit;
-        if (pendingEditList.size() != 0) {
-            mostRecentPendingEdit = pendingEditList.get(0);
-        } else {
-            return "";
-        }
-
-        String value;
-        try {
-            value = mostRecentPendingEdit.getValue();
-        } catch (JSONException e) {
-            value = null;
-        }
-
-        return value;
-
+        PendingEditDescription ped = pendingEdits.get(pendingKey);
+        return ped == null ? "" : ped.getLatestPendingValue();
     }
 }
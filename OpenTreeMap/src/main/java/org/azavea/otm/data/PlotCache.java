@@ -0,0 +1,66 @@
+package org.azavea.otm.data;
+
+import org.azavea.helpers.Logger;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The plots most recently loaded from the API, by id, so they can be searched without
+ * another request.  The least recently loaded plots are dropped once the cache is full.
+ * <p>
+ * Plots are added on the UI thread as they arrive, and read from background tasks, so all
+ * methods are synchronized.
+ */
+public class PlotCache {
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, Plot> plots;
+
+    public PlotCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PlotCache(final int capacity) {
+        this.capacity = capacity;
+        this.plots = new LinkedHashMap<Integer, Plot>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Plot> eldest) {
+                return size() > PlotCache.this.capacity;
+            }
+        };
+    }
+
+    public synchronized void put(Plot plot) {
+        try {
+            // Re-inserting moves the plot to the most recently loaded end
+            int id = plot.getId();
+            plots.remove(id);
+            plots.put(id, plot);
+        } catch (JSONException e) {
+            Logger.warning("Not caching a plot without an id", e);
+        }
+    }
+
+    public synchronized void putAll(Collection<Plot> loaded) {
+        for (Plot plot : loaded) {
+            put(plot);
+        }
+    }
+
+    public synchronized int size() {
+        return plots.size();
+    }
+
+    /**
+     * @return the cached plots, oldest first
+     */
+    public synchronized List<Plot> snapshot() {
+        return new ArrayList<>(plots.values());
+    }
+}
@@ -0,0 +1,107 @@
+package org.azavea.otm.data;
+
+import org.azavea.helpers.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the key paths of a Plot which have been modified since it was loaded.
+ * <p>
+ * The change set holds a copy of the plot JSON as it was originally received, and each recorded
+ * value is compared against that snapshot, so setting a field back to its loaded value removes
+ * it from the set.  Only the changed paths are serialized when the plot is updated.
+ */
+public class PlotChangeSet {
+    private final JSONObject snapshot;
+    private final Map<String, Object> changes = new LinkedHashMap<>();
+
+    public PlotChangeSet(JSONObject loadedData) {
+        JSONObject copy;
+        try {
+            copy = loadedData == null ? new JSONObject() : new JSONObject(loadedData.toString());
+        } catch (JSONException e) {
+            Logger.error("Unable to snapshot plot data", e);
+            copy = new JSONObject();
+        }
+        snapshot = copy;
+    }
+
+    /**
+     * Record a new value for a '.' separated key path, or forget it if it matches the snapshot
+     */
+    public void record(String key, Object value) {
+        if (isSameValue(getSnapshotValue(key), value)) {
+            changes.remove(key);
+        } else {
+            changes.put(key, value);
+        }
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public Set<String> getChangedKeys() {
+        return Collections.unmodifiableSet(changes.keySet());
+    }
+
+    /**
+     * Serialize only the changed key paths, nested in the same shape as the plot JSON
+     * ex: {"tree": {"diameter": 12.5}}
+     */
+    public JSONObject toJSON() throws JSONException {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String[] keys = change.getKey().split("\\.");
+            JSONObject parent = json;
+            for (int i = 0; i < keys.length - 1; i++) {
+                JSONObject child = parent.optJSONObject(keys[i]);
+                if (child == null) {
+                    child = new JSONObject();
+                    parent.put(keys[i], child);
+                }
+                parent = child;
+            }
+            Object value = change.getValue();
+            parent.put(keys[keys.length - 1], value == null ? JSONObject.NULL : value);
+        }
+        // The api expects a plot object, even if only the tree was changed
+        if (!json.has(Plot.PLOT)) {
+            json.put(Plot.PLOT, new JSONObject());
+        }
+        return json;
+    }
+
+    private Object getSnapshotValue(String key) {
+        String[] keys = key.split("\\.");
+        JSONObject json = snapshot;
+        for (int i = 0; i < keys.length - 1; i++) {
+            json = json.optJSONObject(keys[i]);
+            if (json == null) {
+                return null;
+            }
+        }
+        return json.isNull(keys[keys.length - 1]) ? null : json.opt(keys[keys.length - 1]);
+    }
+
+    private static boolean isSameValue(Object original, Object value) {
+        boolean originalEmpty = JSONObject.NULL.equals(original) || "".equals(original);
+        boolean valueEmpty = JSONObject.NULL.equals(value) || "".equals(value);
+        if (originalEmpty || valueEmpty) {
+            return originalEmpty && valueEmpty;
+        }
+        if (original instanceof Number && value instanceof Number) {
+            return ((Number) original).doubleValue() == ((Number) value).doubleValue();
+        }
+        if (original instanceof JSONObject || original instanceof JSONArray) {
+            return original.toString().equals(value.toString());
+        }
+        return original.equals(value);
+    }
+}
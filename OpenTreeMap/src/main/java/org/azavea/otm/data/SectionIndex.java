@@ -0,0 +1,222 @@
+package org.azavea.otm.data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An alphabetical ordering of a list of items, split into sections by first letter, following
+ * the sorting rules of a locale.
+ * <p>
+ * Each item's collation key is computed once, rather than comparing strings on every step of
+ * the sort.  Sections follow the locale's alphabet rather than just A-Z: letters that the locale
+ * treats as variants of another letter (É in English) share its section, and letters the
+ * locale sorts separately (Ä in Swedish) get their own.  Items which don't start with a letter
+ * go in a "#" section.
+ * <p>
+ * An index can be saved with {@link #writeTo} and read back with {@link #readFrom}, so it
+ * doesn't have to be rebuilt while the locale is unchanged.
+ */
+public class SectionIndex {
+    public static final String OTHER_SECTION = "#";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String locale;
+    private final int[] order;
+    private final String[] labels;
+    private final int[] sectionStarts;
+
+    private SectionIndex(String locale, int[] order, String[] labels, int[] sectionStarts) {
+        this.locale = locale;
+        this.order = order;
+        this.labels = labels;
+        this.sectionStarts = sectionStarts;
+    }
+
+    /**
+     * @param keys the text to sort each item by, in item order
+     */
+    public static SectionIndex build(String[] keys, Locale locale) {
+        Collator collator = Collator.getInstance(locale);
+        collator.setStrength(Collator.TERTIARY);
+
+        final CollationKey[] collationKeys = new CollationKey[keys.length];
+        Integer[] sorted = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            collationKeys[i] = collator.getCollationKey(keys[i] == null ? "" : keys[i].trim());
+            sorted[i] = i;
+        }
+        // Equal keys keep their item order
+        Arrays.sort(sorted, (a, b) -> {
+            int result = collationKeys[a].compareTo(collationKeys[b]);
+            if (result != 0) {
+                return result;
+            }
+            return a < b ? -1 : (a.equals(b) ? 0 : 1);
+        });
+
+        // Letters which only differ by accent or case are the same letter at primary strength
+        Collator letters = Collator.getInstance(locale);
+        letters.setStrength(Collator.PRIMARY);
+
+        int[] order = new int[keys.length];
+        List<String> labels = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        String label = null;
+        for (int position = 0; position < sorted.length; position++) {
+            order[position] = sorted[position];
+            String itemLabel = getSectionLabel(keys[order[position]], letters, locale);
+            if (label == null || letters.compare(itemLabel, label) != 0) {
+                label = itemLabel;
+                labels.add(label);
+                starts.add(position);
+            }
+        }
+
+        int[] sectionStarts = new int[starts.size()];
+        for (int i = 0; i < sectionStarts.length; i++) {
+            sectionStarts[i] = starts.get(i);
+        }
+        return new SectionIndex(locale.toString(), order, labels.toArray(new String[labels.size()]),
+                sectionStarts);
+    }
+
+    private static String getSectionLabel(String key, Collator letters, Locale locale) {
+        String trimmed = key == null ? "" : key.trim();
+        if (trimmed.isEmpty() || !Character.isLetter(trimmed.codePointAt(0))) {
+            return OTHER_SECTION;
+        }
+        String letter = new String(Character.toChars(trimmed.codePointAt(0))).toUpperCase(locale);
+
+        // Label accented letters by their base letter, if the locale sorts them together
+        String base = Normalizer.normalize(letter, Normalizer.Form.NFD).substring(0, 1);
+        return !base.equals(letter) && letters.compare(base, letter) == 0 ? base : letter;
+    }
+
+    /**
+     * @return true if the index was built with the sorting rules of the given locale
+     */
+    public boolean isFor(Locale locale) {
+        return this.locale.equals(locale.toString());
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @return the item at the given position in sorted order
+     */
+    public int getItem(int position) {
+        return order[position];
+    }
+
+    public int getSectionCount() {
+        return labels.length;
+    }
+
+    public String getSectionLabel(int section) {
+        return labels[section];
+    }
+
+    /**
+     * @return the sorted position of the first item in the section
+     */
+    public int getSectionStart(int section) {
+        return sectionStarts[section];
+    }
+
+    /**
+     * @return the sorted position after the last item in the section
+     */
+    public int getSectionEnd(int section) {
+        return section + 1 < sectionStarts.length ? sectionStarts[section + 1] : order.length;
+    }
+
+    /**
+     * Arrange items into their sections, in sorted order
+     *
+     * @param items the items the index was built for, in the same order as their keys
+     */
+    public <T> LinkedHashMap<CharSequence, List<T>> group(T[] items) {
+        if (items.length != order.length) {
+            throw new IllegalArgumentException("Index is for " + order.length + " items, not " + items.length);
+        }
+        LinkedHashMap<CharSequence, List<T>> sections = new LinkedHashMap<>(labels.length * 2);
+        for (int section = 0; section < labels.length; section++) {
+            int start = getSectionStart(section);
+            int end = getSectionEnd(section);
+
+            // A label only repeats if the locale sorts some of its items apart, e.g. symbols
+            List<T> list = sections.get(labels[section]);
+            if (list == null) {
+                list = new ArrayList<>(end - start);
+                sections.put(labels[section], list);
+            }
+            for (int position = start; position < end; position++) {
+                list.add(items[order[position]]);
+            }
+        }
+        return sections;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, locale);
+        out.writeInt(order.length);
+        for (int item : order) {
+            out.writeInt(item);
+        }
+        out.writeInt(labels.length);
+        for (int section = 0; section < labels.length; section++) {
+            writeString(out, labels[section]);
+            out.writeInt(sectionStarts[section]);
+        }
+    }
+
+    public static SectionIndex readFrom(ByteBuffer in) throws IOException {
+        try {
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported section index format: " + version);
+            }
+            String locale = readString(in);
+            int[] order = new int[in.getInt()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = in.getInt();
+            }
+            String[] labels = new String[in.getInt()];
+            int[] sectionStarts = new int[labels.length];
+            for (int section = 0; section < labels.length; section++) {
+                labels[section] = readString(in);
+                sectionStarts[section] = in.getInt();
+            }
+            return new SectionIndex(locale, order, labels, sectionStarts);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid section index", e);
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -59,9 +59,7 @@ public class Species extends Model implements Comparable<Object> {
 
     public int compareTo(Object otherOne) {
         Species other = (Species) otherOne;
-        if (getCommonName().compareTo(other.getCommonName()) < 0) return -1;
-        if (getCommonName().compareTo(other.getCommonName()) > 0) return 1;
-        return 0;
+        return Integer.signum(getCommonName().compareTo(other.getCommonName()));
     }
 
     @Override
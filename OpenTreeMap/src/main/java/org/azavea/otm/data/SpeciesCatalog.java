@@ -0,0 +1,447 @@
+package org.azavea.otm.data;
+
+import org.azavea.helpers.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A compact, read-only list of all species for an instance.
+ * <p>
+ * Species are stored as parallel columns rather than one JSONObject per species, with repeated
+ * names (genus, cultivar, etc.) shared through a string pool.  Lookups by id go through an
+ * open-addressing int index.
+ * <p>
+ * Species objects are only materialized when a caller asks for one, or when the species are
+ * grouped by common name for the species list.
+ */
+public class SpeciesCatalog {
+    public static final SpeciesCatalog EMPTY = new SpeciesCatalog(new Builder(0));
+
+    static final String ID = "id";
+    static final String COMMON_NAME = "common_name";
+    static final String SCIENTIFIC_NAME = "scientific_name";
+    static final String GENUS = "genus";
+    static final String SPECIES = "species";
+    static final String CULTIVAR = "cultivar";
+    static final String OTHER_PART_OF_NAME = "other_part_of_name";
+
+    private static final int EMPTY_SLOT = -1;
+
+    // Binary format: string table followed by one row of string table indexes per species
+    private static final int FORMAT_VERSION = 1;
+    private static final int NO_STRING = -1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int size;
+    private final int[] ids;
+    private final String[] commonNames;
+    private final String[] scientificNames;
+    private final String[] genera;
+    private final String[] speciesNames;
+    private final String[] cultivars;
+    private final String[] otherParts;
+
+    // Any fields we don't have a column for, serialized as JSON, or null if there are none
+    private final String[] extras;
+
+    // Open addressing hash of species id -> row, with linear probing
+    private final int[] indexKeys;
+    private final int[] indexRows;
+    private final int indexMask;
+
+    // Sections of the species list by common name, for one locale, with the species grouped by
+    // them.  Replaced as a whole, so readers never see sections and groups which don't match.
+    private volatile CommonNameIndex commonNameIndex = null;
+
+    private static class CommonNameIndex {
+        final SectionIndex sections;
+        final LinkedHashMap<CharSequence, List<Species>> groups;
+
+        CommonNameIndex(SectionIndex sections, LinkedHashMap<CharSequence, List<Species>> groups) {
+            this.sections = sections;
+            this.groups = groups;
+        }
+
+        boolean isComplete(Locale locale) {
+            return groups != null && sections.isFor(locale);
+        }
+    }
+
+    private SpeciesCatalog(Builder builder) {
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        commonNames = Arrays.copyOf(builder.commonNames, size);
+        scientificNames = Arrays.copyOf(builder.scientificNames, size);
+        genera = Arrays.copyOf(builder.genera, size);
+        speciesNames = Arrays.copyOf(builder.speciesNames, size);
+        cultivars = Arrays.copyOf(builder.cultivars, size);
+        otherParts = Arrays.copyOf(builder.otherParts, size);
+        extras = Arrays.copyOf(builder.extras, size);
+
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        indexKeys = new int[capacity];
+        indexRows = new int[capacity];
+        indexMask = capacity - 1;
+        Arrays.fill(indexRows, EMPTY_SLOT);
+        for (int row = 0; row < size; row++) {
+            int slot = findSlot(ids[row]);
+            indexKeys[slot] = ids[row];
+            indexRows[slot] = row;
+        }
+    }
+
+    public static SpeciesCatalog fromJSON(JSONArray speciesList) throws JSONException {
+        Builder builder = new Builder(speciesList.length());
+        for (int i = 0; i < speciesList.length(); i++) {
+            builder.add(speciesList.getJSONObject(i));
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the row of the species with the given id, or -1 if it is not in the catalog
+     */
+    public int indexOf(int id) {
+        return indexRows[findSlot(id)];
+    }
+
+    public boolean contains(int id) {
+        return indexOf(id) != EMPTY_SLOT;
+    }
+
+    /**
+     * @return the species with the given id, or null if it is not in the catalog
+     */
+    public Species get(int id) {
+        int row = indexOf(id);
+        return row == EMPTY_SLOT ? null : getAt(row);
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getCommonName(int row) {
+        return commonNames[row];
+    }
+
+    public String getScientificName(int row) {
+        return scientificNames[row];
+    }
+
+    /**
+     * Materialize a Species for the given row, for handing to views and the API
+     */
+    public Species getAt(int row) {
+        Species species = new Species();
+        JSONObject data = species.getData();
+        try {
+            if (extras[row] != null) {
+                JSONObject extra = new JSONObject(extras[row]);
+                Iterator<String> keys = extra.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    data.put(key, extra.get(key));
+                }
+            }
+            data.put(ID, ids[row]);
+            putIfPresent(data, COMMON_NAME, commonNames[row]);
+            putIfPresent(data, SCIENTIFIC_NAME, scientificNames[row]);
+            putIfPresent(data, GENUS, genera[row]);
+            putIfPresent(data, SPECIES, speciesNames[row]);
+            putIfPresent(data, CULTIVAR, cultivars[row]);
+            putIfPresent(data, OTHER_PART_OF_NAME, otherParts[row]);
+        } catch (JSONException e) {
+            Logger.error("Unable to create species from catalog", e);
+        }
+        return species;
+    }
+
+    /**
+     * @return the species in row order, as indexed by {@link #getCommonNameSections}
+     */
+    public Species[] toArray() {
+        Species[] species = new Species[size];
+        for (int row = 0; row < size; row++) {
+            species[row] = getAt(row);
+        }
+        return species;
+    }
+
+    /**
+     * @return true if the species are sectioned and grouped by common name for the device locale
+     */
+    public boolean hasCommonNameIndex() {
+        CommonNameIndex index = commonNameIndex;
+        return index != null && index.isComplete(Locale.getDefault());
+    }
+
+    /**
+     * Section and group the species by common name for the device locale, if they aren't already.
+     * This sorts and materializes every species, so it should be done off the UI thread, before
+     * the catalog is shown.
+     */
+    public void prepareCommonNameIndex() {
+        getCommonNameIndex();
+    }
+
+    /**
+     * @return the rows sorted and sectioned by common name, for the device locale
+     */
+    public SectionIndex getCommonNameSections() {
+        return getCommonNameIndex().sections;
+    }
+
+    /**
+     * @return the species grouped by the first letter of their common name, for the device
+     * locale.  The groups are shared, and must not be modified.
+     */
+    public LinkedHashMap<CharSequence, List<Species>> getCommonNameGroups() {
+        return getCommonNameIndex().groups;
+    }
+
+    private CommonNameIndex getCommonNameIndex() {
+        Locale locale = Locale.getDefault();
+        CommonNameIndex index = commonNameIndex;
+        if (index == null || !index.isComplete(locale)) {
+            // Sections restored from the saved catalog only need their species grouped
+            SectionIndex sections = index != null && index.sections.isFor(locale)
+                    ? index.sections
+                    : SectionIndex.build(commonNames, locale);
+            index = new CommonNameIndex(sections, sections.group(toArray()));
+            commonNameIndex = index;
+        }
+        return index;
+    }
+
+    void setCommonNameSections(SectionIndex sections) {
+        if (sections.size() == size) {
+            commonNameIndex = new CommonNameIndex(sections, null);
+        }
+    }
+
+    /**
+     * Write the catalog in a compact binary form, which can be read back with {@link #readFrom}
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        String[] strings = new String[0];
+        int stringCount = 0;
+        int[][] rows = new int[size][];
+        String[][] columns = {commonNames, scientificNames, genera, speciesNames, cultivars, otherParts, extras};
+
+        for (int row = 0; row < size; row++) {
+            rows[row] = new int[columns.length];
+            for (int column = 0; column < columns.length; column++) {
+                String value = columns[column][row];
+                if (value == null) {
+                    rows[row][column] = NO_STRING;
+                    continue;
+                }
+                Integer index = stringIndexes.get(value);
+                if (index == null) {
+                    index = stringCount++;
+                    stringIndexes.put(value, index);
+                    if (index >= strings.length) {
+                        strings = Arrays.copyOf(strings, Math.max(16, strings.length * 2));
+                    }
+                    strings[index] = value;
+                }
+                rows[row][column] = index;
+            }
+        }
+
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(stringCount);
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = strings[i].getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(size);
+        for (int row = 0; row < size; row++) {
+            out.writeInt(ids[row]);
+            for (int index : rows[row]) {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    /**
+     * Read a catalog written by {@link #writeTo}, typically from a memory mapped file
+     */
+    public static SpeciesCatalog readFrom(ByteBuffer in) throws IOException {
+        try {
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported species catalog format: " + version);
+            }
+            String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+            int count = in.getInt();
+            Builder builder = new Builder(count);
+            for (int row = 0; row < count; row++) {
+                int id = in.getInt();
+                builder.add(id, readString(in, strings), readString(in, strings),
+                        readString(in, strings), readString(in, strings), readString(in, strings),
+                        readString(in, strings), readString(in, strings));
+            }
+            return builder.build();
+        } catch (RuntimeException e) {
+            // Buffer underflows and bad indexes mean the file is truncated or corrupt
+            throw new IOException("Invalid species catalog", e);
+        }
+    }
+
+    private static String readString(ByteBuffer in, String[] strings) {
+        int index = in.getInt();
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    private int findSlot(int id) {
+        int slot = mix(id) & indexMask;
+        while (indexRows[slot] != EMPTY_SLOT && indexKeys[slot] != id) {
+            slot = (slot + 1) & indexMask;
+        }
+        return slot;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void putIfPresent(JSONObject data, String key, String value) throws JSONException {
+        if (value != null) {
+            data.put(key, value);
+        }
+    }
+
+    /**
+     * Collects species rows, sharing equal strings between rows, and builds the catalog
+     */
+    public static class Builder {
+        private final Map<String, String> stringPool = new HashMap<>();
+
+        private int size = 0;
+        private int[] ids;
+        private String[] commonNames;
+        private String[] scientificNames;
+        private String[] genera;
+        private String[] speciesNames;
+        private String[] cultivars;
+        private String[] otherParts;
+        private String[] extras;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            ids = new int[capacity];
+            commonNames = new String[capacity];
+            scientificNames = new String[capacity];
+            genera = new String[capacity];
+            speciesNames = new String[capacity];
+            cultivars = new String[capacity];
+            otherParts = new String[capacity];
+            extras = new String[capacity];
+        }
+
+        public Builder add(JSONObject speciesData) throws JSONException {
+            JSONObject extra = new JSONObject();
+            Iterator<String> keys = speciesData.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!isColumn(key)) {
+                    extra.put(key, speciesData.get(key));
+                }
+            }
+            return add(speciesData.getInt(ID),
+                    speciesData.optString(COMMON_NAME),
+                    speciesData.optString(SCIENTIFIC_NAME),
+                    optString(speciesData, GENUS),
+                    optString(speciesData, SPECIES),
+                    optString(speciesData, CULTIVAR),
+                    optString(speciesData, OTHER_PART_OF_NAME),
+                    extra.length() > 0 ? extra.toString() : null);
+        }
+
+        public Builder add(int id, String commonName, String scientificName, String genus,
+                           String species, String cultivar, String otherPart, String extra) {
+            ensureCapacity(size + 1);
+            ids[size] = id;
+            commonNames[size] = pool(commonName == null ? "" : commonName);
+            scientificNames[size] = pool(scientificName == null ? "" : scientificName);
+            genera[size] = pool(genus);
+            speciesNames[size] = pool(species);
+            cultivars[size] = pool(cultivar);
+            otherParts[size] = pool(otherPart);
+            extras[size] = extra;
+            size++;
+            return this;
+        }
+
+        public SpeciesCatalog build() {
+            return new SpeciesCatalog(this);
+        }
+
+        private String pool(String value) {
+            if (value == null) {
+                return null;
+            }
+            String pooled = stringPool.get(value);
+            if (pooled == null) {
+                stringPool.put(value, value);
+                pooled = value;
+            }
+            return pooled;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                int newCapacity = Math.max(capacity, ids.length * 2);
+                ids = Arrays.copyOf(ids, newCapacity);
+                commonNames = Arrays.copyOf(commonNames, newCapacity);
+                scientificNames = Arrays.copyOf(scientificNames, newCapacity);
+                genera = Arrays.copyOf(genera, newCapacity);
+                speciesNames = Arrays.copyOf(speciesNames, newCapacity);
+                cultivars = Arrays.copyOf(cultivars, newCapacity);
+                otherParts = Arrays.copyOf(otherParts, newCapacity);
+                extras = Arrays.copyOf(extras, newCapacity);
+            }
+        }
+
+        private static boolean isColumn(String key) {
+            return ID.equals(key) || COMMON_NAME.equals(key) || SCIENTIFIC_NAME.equals(key)
+                    || GENUS.equals(key) || SPECIES.equals(key) || CULTIVAR.equals(key)
+                    || OTHER_PART_OF_NAME.equals(key);
+        }
+
+        private static String optString(JSONObject data, String key) {
+            return data.isNull(key) ? null : data.optString(key);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.azavea.otm.data;
+
+import org.azavea.helpers.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Persists the species catalog for one instance, along with the server revision it was fetched
+ * at, so that species are available immediately on startup.
+ * <p>
+ * These methods do disk I/O and should not be called on the UI thread.
+ */
+public class SpeciesCatalogStore {
+    private static final int MAGIC = 0x4f544d53; // "OTMS"
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+
+    public static class Snapshot {
+        public final String revision;
+        public final SpeciesCatalog catalog;
+
+        Snapshot(String revision, SpeciesCatalog catalog) {
+            this.revision = revision;
+            this.catalog = catalog;
+        }
+    }
+
+    public SpeciesCatalogStore(File directory, int instanceId) {
+        this.file = new File(directory, "species-" + instanceId + ".bin");
+    }
+
+    /**
+     * @return the saved species and their revision, or null if there are none or they can't be read
+     */
+    public Snapshot load() {
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            FileChannel channel = stream.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a species catalog file");
+            }
+            byte[] revision = new byte[buffer.getInt()];
+            buffer.get(revision);
+            SpeciesCatalog catalog = SpeciesCatalog.readFrom(buffer);
+            if (buffer.hasRemaining()) {
+                loadSections(buffer, catalog);
+            }
+            return new Snapshot(new String(revision, UTF_8), catalog);
+        } catch (IOException | RuntimeException e) {
+            Logger.warning("Discarding unreadable species catalog", e);
+            clear();
+            return null;
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static void loadSections(MappedByteBuffer buffer, SpeciesCatalog catalog) {
+        // The sections can always be rebuilt, so a bad index doesn't discard the catalog
+        try {
+            catalog.setCommonNameSections(SectionIndex.readFrom(buffer));
+        } catch (IOException e) {
+            Logger.warning("Ignoring unreadable species sections", e);
+        }
+    }
+
+    /**
+     * Replace the saved species.  The common name sections for the device locale are saved
+     * with them, and are built first if the catalog doesn't have them yet, so the catalog should
+     * be indexed with {@link SpeciesCatalog#prepareCommonNameIndex} before it is published.  The
+     * file is written to a temporary file first, so a partially written file is never loaded.
+     */
+    public void save(String revision, SpeciesCatalog catalog) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            byte[] revisionBytes = (revision == null ? "" : revision).getBytes(UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(revisionBytes.length);
+            out.write(revisionBytes);
+            catalog.writeTo(out);
+            catalog.getCommonNameSections().writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    public void clear() {
+        file.delete();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Logger.warning(e);
+            }
+        }
+    }
+}
@@ -19,4 +19,11 @@ public class SpeciesContainer extends ModelContainer<Species> {
         return speciesList;
     }
 
+    /**
+     * A compact catalog of the species, which avoids keeping a JSONObject per species
+     */
+    public SpeciesCatalog getCatalog() throws JSONException {
+        return SpeciesCatalog.fromJSON(data);
+    }
+
 }
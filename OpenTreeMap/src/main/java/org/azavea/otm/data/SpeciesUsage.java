@@ -0,0 +1,44 @@
+package org.azavea.otm.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.azavea.helpers.Logger;
+import org.json.JSONException;
+
+/**
+ * Counts how many times each species of an instance has been picked from the species list, so
+ * that species a user picks often can be ranked higher when searching.
+ */
+public class SpeciesUsage {
+    private static final String PREFERENCES_NAME = "species_usage";
+
+    private final SharedPreferences prefs;
+    private final String keyPrefix;
+
+    public SpeciesUsage(Context context, int instanceId) {
+        this.prefs = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.keyPrefix = instanceId + ":";
+    }
+
+    public int getCount(Species species) {
+        String key = getKey(species);
+        return key == null ? 0 : prefs.getInt(key, 0);
+    }
+
+    public void recordPick(Species species) {
+        String key = getKey(species);
+        if (key != null) {
+            prefs.edit().putInt(key, prefs.getInt(key, 0) + 1).apply();
+        }
+    }
+
+    private String getKey(Species species) {
+        try {
+            return keyPrefix + species.getId();
+        } catch (JSONException e) {
+            Logger.warning("Species has no id, its usage is not counted");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.azavea.otm.data;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single photo of a plot's tree, decoded once from the plot photos JSON
+ */
+public class TreePhoto {
+    private final int id;
+    private final String imageUrl;
+    private final String thumbnailUrl;
+
+    public TreePhoto(int id, String imageUrl, String thumbnailUrl) {
+        this.id = id;
+        this.imageUrl = imageUrl;
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    /**
+     * Decode the valid photos in a photos JSON array, sorted by id, so the most recent is last
+     */
+    public static List<TreePhoto> fromJSON(JSONArray photos) {
+        if (photos == null || photos.length() == 0) {
+            return Collections.emptyList();
+        }
+        List<TreePhoto> treePhotos = new ArrayList<>(photos.length());
+        for (int i = 0; i < photos.length(); i++) {
+            JSONObject photo = photos.optJSONObject(i);
+            // If we start supporting multiple trees, we'll need to check the tree id here
+            if (photo != null && photo.optInt(Plot.ID) != 0
+                    && photo.has(Plot.PHOTO_IMAGE) && photo.has(Plot.PHOTO_THUMBNAIL)) {
+                treePhotos.add(new TreePhoto(photo.optInt(Plot.ID),
+                        photo.optString(Plot.PHOTO_IMAGE), photo.optString(Plot.PHOTO_THUMBNAIL)));
+            }
+        }
+        // Integer.compare is only available from API 19
+        Collections.sort(treePhotos, (a, b) -> a.id < b.id ? -1 : (a.id == b.id ? 0 : 1));
+        return Collections.unmodifiableList(treePhotos);
+    }
+}
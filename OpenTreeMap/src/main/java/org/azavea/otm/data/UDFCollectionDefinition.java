@@ -26,6 +26,8 @@ public class UDFCollectionDefinition extends Model implements Parcelable {
     private static final String COLLECTION_KEY = "field_key";
     private static final String DISPLAY_NAME = "display_name";
 
+    private LinkedHashMap<String, JSONObject> typesByName = null;
+
     public UDFCollectionDefinition(JSONObject data) {
         setData(data);
     }
@@ -85,15 +87,22 @@ public class UDFCollectionDefinition extends Model implements Parcelable {
     }
 
 
+    /**
+     * The sub-field types keyed by name.  Built once and shared by every entry of the collection,
+     * so it must not be modified.
+     */
     public LinkedHashMap<String, JSONObject> groupTypesByName() {
-        // It is easier to work with the udf fields by name, so we pull it into a LinkedHashMap
-        final LinkedHashMap<String, JSONObject> map = new LinkedHashMap<>();
-        final JSONArray dataTypes = getDataTypes();
-        for (int i = 0; i < dataTypes.length(); i++) {
-            final JSONObject dataType = dataTypes.optJSONObject(i);
-            map.put(dataType.optString(FIELD_NAME), dataType);
+        if (typesByName == null) {
+            // It is easier to work with the udf fields by name, so we pull it into a LinkedHashMap
+            final LinkedHashMap<String, JSONObject> map = new LinkedHashMap<>();
+            final JSONArray dataTypes = getDataTypes();
+            for (int i = 0; i < dataTypes.length(); i++) {
+                final JSONObject dataType = dataTypes.optJSONObject(i);
+                map.put(dataType.optString(FIELD_NAME), dataType);
+            }
+            typesByName = map;
         }
-        return map;
+        return typesByName;
     }
 
     /**
@@ -42,7 +42,7 @@ public abstract class ButtonField extends Field {
 
         if (this.canEdit) {
             container = layout.inflate(R.layout.plot_field_edit_button_row, parent, false);
-            Object value = plot.getValueForKey(this.key);
+            Object value = getValue(plot);
 
             ((TextView) container.findViewById(R.id.field_label)).setText(this.label);
             Button choiceButton = (Button) container.findViewById(R.id.choice_select);
@@ -29,7 +29,7 @@ public class DiameterField extends TextField {
     @Override
     public View renderForEdit(LayoutInflater inflater, Plot plot, Activity activity, ViewGroup parent) {
         if (this.canEdit) {
-            Object value = plot.getValueForKey(this.key);
+            Object value = getValue(plot);
             View container = inflater.inflate(R.layout.plot_field_edit_diameter_row, parent, false);
 
             View diameterRow = container.findViewById(R.id.diameter_row);
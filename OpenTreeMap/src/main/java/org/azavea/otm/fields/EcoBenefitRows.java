@@ -0,0 +1,105 @@
+package org.azavea.otm.fields;
+
+import android.util.LruCache;
+
+import org.azavea.otm.data.Plot;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the eco benefit rows shown for a plot, and keeps the rows of recently shown plots.
+ * <p>
+ * Eco benefits are calculated by the server and only change when the plot does, so rows are
+ * cached by plot id and the time of the plot's latest update, and showing the same plot again
+ * doesn't rebuild them.
+ */
+public class EcoBenefitRows {
+    private static final int MAX_CACHED_PLOTS = 32;
+
+    // Display position of each instance eco key, so benefits can be placed in order with a
+    // single pass over the payload instead of a lookup per instance key
+    private final Map<String, Integer> keyPositions;
+    private final int keyCount;
+    private final LruCache<String, List<FieldDisplayRow>> cache = new LruCache<>(MAX_CACHED_PLOTS);
+
+    /**
+     * @param ecoKeys eco benefit keys in display order, or null if the instance has none
+     */
+    public EcoBenefitRows(String[] ecoKeys) {
+        if (ecoKeys == null) {
+            keyPositions = Collections.emptyMap();
+            keyCount = 0;
+            return;
+        }
+        keyCount = ecoKeys.length;
+        keyPositions = new HashMap<>(ecoKeys.length * 2);
+        for (int i = 0; i < ecoKeys.length; i++) {
+            // If a key is listed twice, it is shown in its first position
+            if (!keyPositions.containsKey(ecoKeys[i])) {
+                keyPositions.put(ecoKeys[i], i);
+            }
+        }
+    }
+
+    /**
+     * @return the eco benefit field rows for the plot, in instance key order, without a header.
+     * The list is shared, and must not be modified.
+     */
+    public List<FieldDisplayRow> getRows(Plot plot) {
+        JSONObject benefits = (JSONObject) plot.getField("benefits");
+        if (benefits == null || keyPositions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        JSONObject eco = benefits.optJSONObject("plot");
+        if (eco == null) {
+            return Collections.emptyList();
+        }
+
+        String cacheKey = getCacheKey(plot);
+        List<FieldDisplayRow> rows = cacheKey == null ? null : cache.get(cacheKey);
+        if (rows == null) {
+            rows = buildRows(eco);
+            if (cacheKey != null) {
+                cache.put(cacheKey, rows);
+            }
+        }
+        return rows;
+    }
+
+    private List<FieldDisplayRow> buildRows(JSONObject eco) {
+        EcoField[] ordered = new EcoField[keyCount];
+        Iterator<?> keys = eco.keys();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            Integer position = keyPositions.get(key);
+            JSONObject ecoField = eco.optJSONObject(key);
+            if (position != null && ecoField != null) {
+                ordered[position] = new EcoField(ecoField);
+            }
+        }
+
+        List<FieldDisplayRow> rows = new ArrayList<>(ordered.length);
+        for (EcoField field : ordered) {
+            if (field != null) {
+                rows.add(field.makeDisplayRow(null));
+            }
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    private static String getCacheKey(Plot plot) {
+        // Plots which haven't been saved yet have no id or updates, and are not cached
+        try {
+            return plot.getId() + ":" + plot.getLastUpdated();
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
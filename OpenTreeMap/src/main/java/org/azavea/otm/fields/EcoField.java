@@ -1,8 +1,6 @@
 package org.azavea.otm.fields;
 
-import org.azavea.otm.R;
 import org.azavea.otm.data.Plot;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import android.app.Activity;
@@ -10,7 +8,6 @@ import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 public class EcoField extends Field {
     private String currency;
@@ -31,19 +28,8 @@ public class EcoField extends Field {
     }
 
     @Override
-    public View renderForDisplay(LayoutInflater layout, Plot plot, Activity activity, ViewGroup parent)
-            throws JSONException {
-
-        View container = layout.inflate(R.layout.plot_ecofield_row, parent, false);
-        ((TextView) container.findViewById(R.id.field_label)).setText(this.label);
-
-        ((TextView) container.findViewById(R.id.field_value))
-                .setText(this.value);
-
-        ((TextView) container.findViewById(R.id.field_money))
-                .setText(this.currency + " " +
-                        activity.getString(R.string.eco_currencey_saved_text));
-        return container;
+    public FieldDisplayRow makeDisplayRow(Plot plot) {
+        return FieldDisplayRow.eco(this, this.value, this.currency);
     }
 
     @Override
@@ -1,19 +1,18 @@
 package org.azavea.otm.fields;
 
 import android.app.Activity;
-import android.content.Context;
 import android.content.Intent;
-import android.net.Uri;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 import android.widget.Toast;
 
+import com.google.common.base.Suppliers;
+
 import org.azavea.helpers.Logger;
 import org.azavea.otm.App;
 import org.azavea.otm.R;
+import org.azavea.otm.adapters.FieldListAdapter;
 import org.azavea.otm.data.PendingEdit;
 import org.azavea.otm.data.PendingEditDescription;
 import org.azavea.otm.data.Plot;
@@ -56,6 +55,11 @@ public abstract class Field {
      */
     public final String key;
 
+    /**
+     * The key split on '.', so that values can be looked up without re-parsing the key
+     */
+    public final String[] keyPath;
+
     /**
      * Label to identify the field on a view
      */
@@ -75,6 +79,7 @@ public abstract class Field {
 
     protected Field(JSONObject fieldDef) {
         key = fieldDef.optString("field_key");
+        keyPath = key.split("\\.");
         label = fieldDef.optString("display_name");
         canEdit = fieldDef.optBoolean("can_write");
         format = fieldDef.optString("data_type");
@@ -85,6 +90,7 @@ public abstract class Field {
 
     protected Field(String key, String label) {
         this.key = key;
+        this.keyPath = key.split("\\.");
         this.label = label;
         canEdit = false;
         format = null;
@@ -128,46 +134,29 @@ public abstract class Field {
      * Render a view to display the given plot field in view mode
      */
     public View renderForDisplay(LayoutInflater layout, Plot plot, Activity activity, ViewGroup parent) throws JSONException {
+        FieldDisplayRow row = makeDisplayRow(plot);
+        View container = layout.inflate(FieldListAdapter.getLayoutId(row.type), parent, false);
+        FieldListAdapter.bindRow(container, row, Suppliers.ofInstance(plot), activity);
+        return container;
+    }
 
-        // our ui elements
-        View container = layout.inflate(R.layout.plot_field_row, parent, false);
-        TextView label = (TextView) container.findViewById(R.id.field_label);
-        TextView fieldValue = (TextView) container.findViewById(R.id.field_value);
-        View infoButton = container.findViewById(R.id.info);
-        View pendingButton = container.findViewById(R.id.pending);
-
-        // set the label (simple)
-        label.setText(this.label);
-
+    /**
+     * Format this field's value on the given plot for display in view mode
+     */
+    public FieldDisplayRow makeDisplayRow(Plot plot) throws JSONException {
         // is this field pending (based on its own notion of pending.)
-        Boolean pending = isKeyPending(this.key, plot);
+        PendingEditDescription pendingEdit = plot.getPendingEditForKey(this.key);
+        boolean pending = pendingEdit != null;
 
-        // Determine the current value of the field and update the ui. (Based on current
-        // value or value of simple pending edit
+        // Determine the current value of the field (based on current
+        // value or value of simple pending edit)
         String value;
         if (!pending) {
-            value = formatValueIfPresent(getValueForKey(this.key, plot));
+            value = formatValueIfPresent(getValue(plot));
         } else {
-            value = plot.getValueForLatestPendingEdit(this.key);
-        }
-        fieldValue.setText(value);
-
-        // If the key is pending, display the arrow UI, and set up its click handler
-        //
-        // Note that the semantics of the bindPendingEditClickHandler function take
-        // a key into the pending edit array, and an optional related field.
-        if (pending) {
-            bindPendingEditClickHandler(pendingButton, this.key, plot, activity);
-            pendingButton.setVisibility(View.VISIBLE);
-        }
-
-        // If the field has a URL attached to it as an info description (IE for pests) display the link.
-        if (!TextUtils.isEmpty(this.infoUrl)) {
-            infoButton.setVisibility(View.VISIBLE);
-            bindInfoButtonClickHandler(infoButton, this.infoUrl, activity);
+            value = pendingEdit.getLatestPendingValue();
         }
-
-        return container;
+        return FieldDisplayRow.field(this, value, pending);
     }
 
     public void update(Plot plot) throws Exception {
@@ -179,6 +168,13 @@ public abstract class Field {
         }
     }
 
+    /**
+     * The current value of this field on the given plot
+     */
+    protected Object getValue(Plot plot) {
+        return plot.getValueForKeyPath(keyPath);
+    }
+
     public void receiveActivityResult(int resultCode, Intent data) {
         Logger.warning("Received intent data for a field which doesn't start an activity.  Ignoring the intent result.");
     }
@@ -198,83 +194,52 @@ public abstract class Field {
         return value.toString();
     }
 
-    private static Object getValueForKey(String key, Plot plot) throws JSONException {
-        PendingEditDescription pending = plot.getPendingEditForKey(key);
-        if (pending != null) {
-            return plot.getPendingEditForKey(key).getLatestValue();
-        } else {
-            return plot.getValueForKey(key);
-        }
-    }
-
-    private static boolean isKeyPending(String key, Plot plot) throws JSONException {
-        PendingEditDescription pending = plot.getPendingEditForKey(key);
-        return pending != null;
-    }
-
-    /*
-     *
-     * key : the index into the pending edit array (IE Species) related field:
-     * the value to return. (IE Species Name)
-     *
-     * If related field is null, return the plain value for the field. (Example,
-     * when key is DBH, we want the numeric value.)
+    /**
+     * Show the pending edits for this field's key on the given plot
      */
-    private void bindPendingEditClickHandler(View b, final String key, final Plot model,
-                                             final Context context) {
-        b.setOnClickListener(v -> {
-            // initialize the intent, and load it with some initial values
-            Intent pendingItemDisplay = new Intent(context, PendingItemDisplay.class);
-            pendingItemDisplay.putExtra("label", label);
-            pendingItemDisplay.putExtra("currentValue", formatValueIfPresent(model.getValueForKey(key)));
-            pendingItemDisplay.putExtra("key", key);
-
-            // Now create an array of pending values, [{id: X, value: "42",
-            // username: "sam"}, ...]
-            PendingEditDescription pendingEditDescription;
-            try {
-                pendingEditDescription = model.getPendingEditForKey(key);
-                List<PendingEdit> pendingEdits = pendingEditDescription.getPendingEdits();
-                JSONArray serializedPendingEdits = new JSONArray();
-                for (PendingEdit pendingEdit : pendingEdits) {
-                    // The value is the plain pending edit's value, or the value of the PE's
-                    // related field. (IE retrieve Species Name instead of a species ID.)
-                    String value = formatValueIfPresent(pendingEdit.getValue());
-
-                    // Continue on loading all of the pending edit data into
-                    // the serializedPendingEdit object
-                    JSONObject serializedPendingEdit = new JSONObject();
-                    serializedPendingEdit.put("id", pendingEdit.getId());
-                    serializedPendingEdit.put("value", value);
-                    serializedPendingEdit.put("username", pendingEdit.getUsername());
-                    try {
-                        serializedPendingEdit.put("date", pendingEdit.getSubmittedTime().toLocaleString());
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        serializedPendingEdit.put("date", "");
-                    }
-
-                    // and then append this edit onto the rest of them.
-                    serializedPendingEdits.put(serializedPendingEdit);
-
+    public void showPendingEdits(final Plot model, final Activity context) {
+        // initialize the intent, and load it with some initial values
+        Intent pendingItemDisplay = new Intent(context, PendingItemDisplay.class);
+        pendingItemDisplay.putExtra("label", label);
+        pendingItemDisplay.putExtra("currentValue", formatValueIfPresent(getValue(model)));
+        pendingItemDisplay.putExtra("key", key);
+
+        // Now create an array of pending values, [{id: X, value: "42",
+        // username: "sam"}, ...]
+        PendingEditDescription pendingEditDescription;
+        try {
+            pendingEditDescription = model.getPendingEditForKey(key);
+            List<PendingEdit> pendingEdits = pendingEditDescription.getPendingEdits();
+            JSONArray serializedPendingEdits = new JSONArray();
+            for (PendingEdit pendingEdit : pendingEdits) {
+                // The value is the plain pending edit's value, or the value of the PE's
+                // related field. (IE retrieve Species Name instead of a species ID.)
+                String value = formatValueIfPresent(pendingEdit.getValue());
+
+                // Continue on loading all of the pending edit data into
+                // the serializedPendingEdit object
+                JSONObject serializedPendingEdit = new JSONObject();
+                serializedPendingEdit.put("id", pendingEdit.getId());
+                serializedPendingEdit.put("value", value);
+                serializedPendingEdit.put("username", pendingEdit.getUsername());
+                try {
+                    serializedPendingEdit.put("date", pendingEdit.getSubmittedTime().toLocaleString());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    serializedPendingEdit.put("date", "");
                 }
-                pendingItemDisplay.putExtra("pending", serializedPendingEdits.toString());
-
-                // And start the target activity
-                Activity a = (Activity) context;
-                a.startActivityForResult(pendingItemDisplay, TreeInfoDisplay.EDIT_REQUEST);
-            } catch (JSONException e1) {
-                Toast.makeText(context, "Sorry, pending edits not available.", Toast.LENGTH_SHORT).show();
-                e1.printStackTrace();
+
+                // and then append this edit onto the rest of them.
+                serializedPendingEdits.put(serializedPendingEdit);
+
             }
-        });
-    }
+            pendingItemDisplay.putExtra("pending", serializedPendingEdits.toString());
 
-    private void bindInfoButtonClickHandler(View infoButton, final String url, final Context context) {
-        infoButton.setOnClickListener(v -> {
-            Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-            Activity a = (Activity) context;
-            a.startActivity(browserIntent);
-        });
+            // And start the target activity
+            context.startActivityForResult(pendingItemDisplay, TreeInfoDisplay.EDIT_REQUEST);
+        } catch (JSONException e1) {
+            Toast.makeText(context, "Sorry, pending edits not available.", Toast.LENGTH_SHORT).show();
+            e1.printStackTrace();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package org.azavea.otm.fields;
+
+import org.azavea.otm.data.Plot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a plot into the rows shown by the field list in view mode.
+ * <p>
+ * All value formatting, choice label lookups and pending edit checks happen here, so this is
+ * meant to be run off the UI thread, leaving only the binding of finished rows to the UI.
+ * The time taken by each stage is recorded with the result.
+ */
+public class FieldDisplayPipeline {
+    public static final String STAGE_FIELDS = "fields";
+    public static final String STAGE_ECO = "eco";
+
+    private final List<FieldGroup> groups;
+    private final EcoBenefitRows ecoRows;
+    private final FieldGroup ecoGroup;
+
+    public static class Result {
+        public final List<FieldDisplayRow> rows;
+
+        /**
+         * Microseconds taken by each stage, in the order they ran
+         */
+        public final Map<String, Long> stageTimings;
+
+        Result(List<FieldDisplayRow> rows, Map<String, Long> stageTimings) {
+            this.rows = Collections.unmodifiableList(rows);
+            this.stageTimings = Collections.unmodifiableMap(stageTimings);
+        }
+    }
+
+    /**
+     * @param groups    the field groups to display, in order
+     * @param ecoRows   builds and caches the eco benefit rows for the instance
+     * @param ecoHeader title for the eco benefits group
+     */
+    public FieldDisplayPipeline(List<FieldGroup> groups, EcoBenefitRows ecoRows, String ecoHeader) {
+        this.groups = groups;
+        this.ecoRows = ecoRows;
+        this.ecoGroup = new FieldGroup(ecoHeader);
+    }
+
+    public Result prepare(Plot plot) {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        List<FieldDisplayRow> rows = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (FieldGroup group : groups) {
+            rows.addAll(group.getDisplayRows(plot));
+        }
+        start = recordStage(timings, STAGE_FIELDS, start);
+
+        // Eco benefit fields are not defined on the instance, but directly on the plot
+        List<FieldDisplayRow> ecoFieldRows = ecoRows.getRows(plot);
+        if (!ecoFieldRows.isEmpty()) {
+            rows.add(FieldDisplayRow.header(ecoGroup));
+            rows.addAll(ecoFieldRows);
+        }
+        recordStage(timings, STAGE_ECO, start);
+
+        return new Result(rows, timings);
+    }
+
+    private static long recordStage(Map<String, Long> timings, String stage, long start) {
+        long end = System.nanoTime();
+        timings.put(stage, (end - start) / 1000);
+        return end;
+    }
+}
@@ -0,0 +1,103 @@
+package org.azavea.otm.fields;
+
+import com.google.common.base.Objects;
+
+/**
+ * The formatted contents of one row of the plot field list in view mode.
+ * <p>
+ * Rows are compared by their contents, so that after a plot is reloaded only the rows which
+ * actually changed need to be bound again.
+ */
+public class FieldDisplayRow {
+
+    public enum Type {
+        GROUP_HEADER, FIELD, SPECIES, ECO, COLLECTION
+    }
+
+    public final Type type;
+    public final String key;
+    public final String label;
+    public final String value;
+
+    /**
+     * The common name for species rows, or the currency saved for eco rows
+     */
+    public final String secondaryValue;
+
+    public final boolean pending;
+    public final String infoUrl;
+
+    /**
+     * The field which made this row, used to show its pending edits.  Null for group rows.
+     */
+    public final Field field;
+
+    /**
+     * The group which made this row, used to render collection groups.  Null for field rows.
+     */
+    public final FieldGroup group;
+
+    private FieldDisplayRow(Type type, String key, String label, String value, String secondaryValue,
+                            boolean pending, String infoUrl, Field field, FieldGroup group) {
+        this.type = type;
+        this.key = key;
+        this.label = label;
+        this.value = value;
+        this.secondaryValue = secondaryValue;
+        this.pending = pending;
+        this.infoUrl = infoUrl;
+        this.field = field;
+        this.group = group;
+    }
+
+    public static FieldDisplayRow header(FieldGroup group) {
+        return new FieldDisplayRow(Type.GROUP_HEADER, "header:" + group.getTitle(), group.getTitle(),
+                null, null, false, null, null, group);
+    }
+
+    public static FieldDisplayRow field(Field field, String value, boolean pending) {
+        return new FieldDisplayRow(Type.FIELD, field.key, field.label, value, null, pending,
+                field.infoUrl, field, null);
+    }
+
+    public static FieldDisplayRow species(Field field, String scientificName, String commonName) {
+        return new FieldDisplayRow(Type.SPECIES, field.key, field.label, scientificName, commonName,
+                false, null, field, null);
+    }
+
+    public static FieldDisplayRow eco(Field field, String value, String currency) {
+        return new FieldDisplayRow(Type.ECO, "eco:" + field.key, field.label, value, currency,
+                false, null, field, null);
+    }
+
+    /**
+     * @param contents identifies the collection values, so that changed collections are re-rendered
+     */
+    public static FieldDisplayRow collection(FieldGroup group, String contents) {
+        return new FieldDisplayRow(Type.COLLECTION, "collection:" + group.getTitle(), group.getTitle(),
+                contents, null, false, null, null, group);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FieldDisplayRow)) {
+            return false;
+        }
+        FieldDisplayRow other = (FieldDisplayRow) o;
+        return type == other.type
+                && pending == other.pending
+                && Objects.equal(key, other.key)
+                && Objects.equal(label, other.label)
+                && Objects.equal(value, other.value)
+                && Objects.equal(secondaryValue, other.secondaryValue)
+                && Objects.equal(infoUrl, other.infoUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(type, key, label, value, secondaryValue, pending, infoUrl);
+    }
+}
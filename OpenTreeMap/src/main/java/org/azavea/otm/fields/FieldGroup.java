@@ -15,7 +15,9 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -71,6 +73,24 @@ public class FieldGroup {
         return fields;
     }
 
+    /**
+     * Whether rendering this group in the given mode could produce any field views
+     */
+    public boolean canRender(DisplayMode mode) {
+        if (title == null || fields.isEmpty()) {
+            return false;
+        }
+        if (mode == DisplayMode.EDIT) {
+            for (Field field : fields.values()) {
+                if (field.canEdit) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
     private View render(LayoutInflater layout, Plot model, DisplayMode mode, Activity activity, ViewGroup parent) {
 
         View container = layout.inflate(R.layout.plot_field_group, parent, false);
@@ -110,6 +130,27 @@ public class FieldGroup {
         }
     }
 
+    /**
+     * Format this group and its fields as rows for the field list in view mode
+     */
+    public List<FieldDisplayRow> getDisplayRows(Plot plot) {
+        List<FieldDisplayRow> rows = new ArrayList<>(fields.size() + 1);
+        if (this.title == null) {
+            return rows;
+        }
+        for (Field field : fields.values()) {
+            try {
+                rows.add(field.makeDisplayRow(plot));
+            } catch (JSONException e) {
+                Logger.error("Error rendering field '" + field.key + "'", e);
+            }
+        }
+        if (!rows.isEmpty()) {
+            rows.add(0, FieldDisplayRow.header(this));
+        }
+        return rows;
+    }
+
     /**
      * Render a field group and its child fields for viewing
      */
@@ -124,6 +165,9 @@ public class FieldGroup {
         return render(layout, model, DisplayMode.EDIT, activity, parent);
     }
 
+    /**
+     * Apply the edited values to the plot, which records any changed keys in its PlotChangeSet
+     */
     public void update(Plot plot) throws Exception {
         for (Field field : fields.values()) {
             field.update(plot);
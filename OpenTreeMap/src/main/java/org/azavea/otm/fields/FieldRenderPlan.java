@@ -0,0 +1,61 @@
+package org.azavea.otm.fields;
+
+import org.azavea.otm.fields.FieldGroup.DisplayMode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The display fields of an instance, arranged for rendering once when the FieldManager is created.
+ * <p>
+ * Groups which can't render anything in a mode are left out of that mode's list, so the tree
+ * screens don't inflate group layouts only to throw them away.  Fields are indexed by key up
+ * front, rather than searched for through the groups.
+ */
+public class FieldRenderPlan {
+
+    private final List<FieldGroup> displayGroups = new ArrayList<>();
+    private final List<FieldGroup> editGroups = new ArrayList<>();
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+
+    public FieldRenderPlan(List<FieldGroup> fieldGroups) {
+        for (FieldGroup group : fieldGroups) {
+            if (group.canRender(DisplayMode.VIEW)) {
+                displayGroups.add(group);
+            }
+            if (group.canRender(DisplayMode.EDIT)) {
+                editGroups.add(group);
+            }
+            for (Field field : group.getFields().values()) {
+                // If a key is in more than one group, the first one is used for lookups
+                if (!fields.containsKey(field.key)) {
+                    fields.put(field.key, field);
+                }
+            }
+        }
+    }
+
+    /**
+     * Field groups to render, in order, when viewing a plot
+     */
+    public List<FieldGroup> getDisplayGroups() {
+        return Collections.unmodifiableList(displayGroups);
+    }
+
+    /**
+     * Field groups to render, in order, when editing a plot
+     */
+    public List<FieldGroup> getEditGroups() {
+        return Collections.unmodifiableList(editGroups);
+    }
+
+    /**
+     * @return the field for a key, or null if the key is not displayed
+     */
+    public Field getField(String key) {
+        return fields.get(key);
+    }
+}
@@ -2,11 +2,7 @@ package org.azavea.otm.fields;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.TextView;
 import android.widget.Toast;
 
 import org.azavea.helpers.Logger;
@@ -27,28 +23,12 @@ public class SpeciesField extends ButtonField {
     }
 
     /*
-     * Render a view to display the given model field in view mode
+     * tree.species gets exploded to a double row with sci name and common name
      */
     @Override
-    public View renderForDisplay(LayoutInflater layout, Plot plot, Activity activity, ViewGroup parent) throws JSONException {
-        View container = layout.inflate(R.layout.plot_field_species_row, parent, false);
-
-        View sciNameRow = container.findViewById(R.id.scientific_name_row);
-        TextView sciNamelabel = (TextView) sciNameRow.findViewById(R.id.field_label);
-        TextView sciNameValue = (TextView) sciNameRow.findViewById(R.id.field_value);
-
-        // tree.species gets exploded to a double row with sci name and common name
-        sciNamelabel.setText(R.string.scientific_name);
-        sciNameValue.setText(formatValueIfPresent(plot.getScienticName()));
-
-        View commonNameRow = container.findViewById(R.id.common_name_row);
-        TextView commonNameLabel = (TextView) commonNameRow.findViewById(R.id.field_label);
-        TextView commonNameValue = (TextView) commonNameRow.findViewById(R.id.field_value);
-
-        commonNameLabel.setText(R.string.common_name);
-        commonNameValue.setText(formatValueIfPresent(plot.getCommonName()));
-
-        return container;
+    public FieldDisplayRow makeDisplayRow(Plot plot) {
+        return FieldDisplayRow.species(this, formatValueIfPresent(plot.getScienticName()),
+                formatValueIfPresent(plot.getCommonName()));
     }
 
     @Override
@@ -42,7 +42,7 @@ public class TextField extends Field {
 
         if (this.canEdit) {
             container = layout.inflate(R.layout.plot_field_edit_row, parent, false);
-            Object value = plot.getValueForKey(this.key);
+            Object value = getValue(plot);
 
             ((TextView) container.findViewById(R.id.field_label)).setText(this.label);
             EditText edit = (EditText) container.findViewById(R.id.field_value);
@@ -23,17 +23,12 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import static com.google.common.collect.Collections2.filter;
-import static com.google.common.collect.Collections2.transform;
-import static com.google.common.collect.Iterables.concat;
-import static com.google.common.collect.Iterables.partition;
 import static com.google.common.collect.Lists.newArrayList;
 
 /**
@@ -60,8 +55,36 @@ public class UDFCollectionFieldGroup extends FieldGroup {
     private final LinkedHashMap<String, UDFCollectionDefinition> editableUdfDefinitions = new LinkedHashMap<>();
     private final List<String> fieldKeys;
 
-    private ViewGroup fieldContainer;
-    private List<UDFCollectionValueField> fields;
+    // The rows and container of the latest edit render, which activity results and updates
+    // apply to.  View renders keep their own rows, so the two don't overwrite each other.
+    private ViewGroup editFieldContainer;
+    private UDFCollectionRows editRows;
+
+    /**
+     * The rows of one view render, which are rendered as "Show More" reveals them
+     */
+    private static class DisplayedRows {
+        final UDFCollectionRows rows;
+        final ViewGroup fieldContainer;
+        int shownRowCount = 0;
+
+        DisplayedRows(UDFCollectionRows rows, ViewGroup fieldContainer) {
+            this.rows = rows;
+            this.fieldContainer = fieldContainer;
+        }
+
+        void showNext(LayoutInflater inflater, Activity activity, View buttonContainer) {
+            final int end = Math.min(shownRowCount + NUM_FIELDS_PER_CLICK, rows.size());
+            for (; shownRowCount < end; shownRowCount++) {
+                try {
+                    fieldContainer.addView(rows.get(shownRowCount).renderForDisplay(inflater, activity, fieldContainer));
+                } catch (JSONException e) {
+                    Logger.error("Error creating collection UDF view", e);
+                }
+            }
+            buttonContainer.setVisibility(shownRowCount < rows.size() ? View.VISIBLE : View.GONE);
+        }
+    }
 
     public UDFCollectionFieldGroup(JSONObject groupDefinition,
                                    Map<String, JSONObject> fieldDefinitions) throws JSONException {
@@ -97,9 +120,34 @@ public class UDFCollectionFieldGroup extends FieldGroup {
         return render(inflater, plot, activity, parent, DisplayMode.EDIT);
     }
 
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public boolean canRender(DisplayMode mode) {
+        return !getCurrentUdfDefinitions(mode).isEmpty();
+    }
+
+    /**
+     * Collections are shown as a single row, rendered with {@link #renderForDisplay}.  The row
+     * includes the collection values, so it is only re-rendered when they change.
+     */
+    @Override
+    public List<FieldDisplayRow> getDisplayRows(Plot plot) {
+        if (!canRender(DisplayMode.VIEW)) {
+            return Collections.emptyList();
+        }
+        StringBuilder contents = new StringBuilder();
+        for (UDFCollectionDefinition udfDef : udfDefinitions.values()) {
+            contents.append(plot.getValueForKey(udfDef.getCollectionKey())).append('\n');
+        }
+        return Collections.singletonList(FieldDisplayRow.collection(this, contents.toString()));
+    }
+
     @Override
     public void receiveActivityResult(int resultCode, Intent data, Activity activity) {
-        boolean shouldUpdate = false;
         for (String key : editableUdfDefinitions.keySet()) {
             if (data.getExtras().containsKey(key)) {
                 final String json = data.getStringExtra(key);
@@ -113,26 +161,22 @@ public class UDFCollectionFieldGroup extends FieldGroup {
                     continue;
                 }
 
-                shouldUpdate = true;
-
                 // The presence of a tag tells us if this is an edit to an existing field or an add
                 final UDFCollectionValueField field = new UDFCollectionValueField(udfDef, sortKey, value);
                 if (data.getExtras().containsKey(UDFCollectionEditActivity.TAG)) {
                     final int tag = data.getIntExtra(UDFCollectionEditActivity.TAG, -1);
-                    if (tag == -1 || fields.isEmpty()) {
+                    final int removedPosition = tag == -1 ? -1 : editRows.remove(tag);
+                    if (removedPosition == -1) {
                         Logger.warning("Invalid tag for UDF, ignoring it");
-                    } else {
-                        // If we received a modified field, remove the old field and add it back with new data
-                        fields = newArrayList(concat(filter(fields, f -> f.getTag() != tag), newArrayList(field)));
+                        continue;
                     }
-                } else {
-                    fields.add(field);
+                    // If we received a modified field, remove the old field and add it back with new data
+                    editFieldContainer.removeViewAt(removedPosition);
                 }
+                final int position = editRows.insert(field);
+                editFieldContainer.addView(field.renderForEdit(activity.getLayoutInflater(), activity, editFieldContainer), position);
             }
         }
-        if (shouldUpdate) {
-            rerenderEditFields(activity);
-        }
     }
 
     @Override
@@ -141,8 +185,8 @@ public class UDFCollectionFieldGroup extends FieldGroup {
         for (String collectionKey : fieldKeys) {
             collectionUdfArrays.put(collectionKey, new JSONArray());
         }
-        if (fields != null) {
-            for (Field field : fields) {
+        if (editRows != null) {
+            for (Field field : editRows.asList()) {
                 String collectionKey = field.key;
                 if (collectionUdfArrays.containsKey(collectionKey)) {
                     JSONArray udfData = collectionUdfArrays.get(collectionKey);
@@ -182,50 +226,41 @@ public class UDFCollectionFieldGroup extends FieldGroup {
         final View buttonContainer = groupContainer.findViewById(R.id.udf_button_container);
         final Button button = (Button) groupContainer.findViewById(R.id.udf_button);
 
-        fields = getFields(plot, mode);
-        fieldContainer = (LinearLayout) groupContainer.findViewById(R.id.fields);
-        final Collection<View> fieldViews = getViewsForFields(inflater, activity, mode);
+        final UDFCollectionRows rows = new UDFCollectionRows(getFields(plot, mode));
+        final ViewGroup fieldContainer = (LinearLayout) groupContainer.findViewById(R.id.fields);
 
         if (mode == DisplayMode.VIEW) {
-            setupFieldsForDisplay(inflater, buttonContainer, button, fieldViews);
+            setupFieldsForDisplay(inflater, activity, new DisplayedRows(rows, fieldContainer), buttonContainer, button);
         } else {
-            setupFieldsForEdit(button, fieldViews, activity);
+            editRows = rows;
+            editFieldContainer = fieldContainer;
+            setupFieldsForEdit(inflater, button, activity);
         }
 
         return groupContainer;
     }
 
-    private void setupFieldsForDisplay(LayoutInflater inflater, View buttonContainer, Button button,
-                                       Collection<View> fieldViews) {
+    private void setupFieldsForDisplay(LayoutInflater inflater, Activity activity, DisplayedRows displayed,
+                                       View buttonContainer, Button button) {
         button.setText(R.string.load_more_collection_udf);
 
-        if (fieldViews.isEmpty()) {
-            inflater.inflate(R.layout.collection_udf_empty, fieldContainer);
+        if (displayed.rows.isEmpty()) {
+            inflater.inflate(R.layout.collection_udf_empty, displayed.fieldContainer);
             buttonContainer.setVisibility(View.GONE);
         } else {
-            // We only want to show so many fields at a time, and add more when a "Show More" button is clicked
-            final List<List<View>> fieldViewGroups = newArrayList(partition(fieldViews, NUM_FIELDS_PER_CLICK));
-
-            addFieldsToGroup(fieldViewGroups.remove(0), fieldContainer);
-
-            if (fieldViewGroups.isEmpty()) {
-                buttonContainer.setVisibility(View.GONE);
-            } else {
-                button.setOnClickListener(v -> {
-                    addFieldsToGroup(fieldViewGroups.remove(0), fieldContainer);
-                    if (fieldViewGroups.isEmpty()) {
-                        buttonContainer.setVisibility(View.GONE);
-                    }
-                });
-            }
+            // We only want to show so many fields at a time, and add more when a "Show More" button is clicked.
+            // Rows are only rendered once they are revealed.
+            displayed.showNext(inflater, activity, buttonContainer);
+            button.setOnClickListener(v -> displayed.showNext(inflater, activity, buttonContainer));
         }
     }
 
-    private void setupFieldsForEdit(Button button, Collection<View> fieldViews, Activity activity) {
+    private void setupFieldsForEdit(LayoutInflater inflater, Button button, Activity activity) {
         button.setText(R.string.udf_create_new);
 
-        for (View view : fieldViews) {
-            fieldContainer.addView(view);
+        // Every row is rendered in edit mode, in sorted order, so view positions match row positions
+        for (UDFCollectionValueField field : editRows.asList()) {
+            editFieldContainer.addView(field.renderForEdit(inflater, activity, editFieldContainer));
         }
 
         button.setOnClickListener(v -> {
@@ -238,17 +273,6 @@ public class UDFCollectionFieldGroup extends FieldGroup {
         });
     }
 
-    private void rerenderEditFields(Activity activity) {
-        fieldContainer.removeAllViews();
-        Collections.sort(fields);
-
-        LayoutInflater inflater = activity.getLayoutInflater();
-        Collection<View> fieldViews = getViewsForFields(inflater, activity, DisplayMode.EDIT);
-        for (View view : fieldViews) {
-            fieldContainer.addView(view);
-        }
-    }
-
     private List<UDFCollectionValueField> getFields(Plot plot, DisplayMode mode) {
         final List<UDFCollectionValueField> fieldsList = newArrayList();
         for (UDFCollectionDefinition udfDef : getCurrentUdfDefinitions(mode).values()) {
@@ -267,26 +291,4 @@ public class UDFCollectionFieldGroup extends FieldGroup {
     private Map<String, UDFCollectionDefinition> getCurrentUdfDefinitions(DisplayMode mode) {
         return (mode == DisplayMode.VIEW) ? udfDefinitions : editableUdfDefinitions;
     }
-
-    private Collection<View> getViewsForFields(LayoutInflater inflater, Activity activity, DisplayMode mode) {
-        Collections.sort(fields);
-        return filter(transform(fields, field -> {
-            try {
-                if (mode == DisplayMode.VIEW) {
-                    return field.renderForDisplay(inflater, activity, fieldContainer);
-                } else {
-                    return field.renderForEdit(inflater, activity, fieldContainer);
-                }
-            } catch (JSONException e) {
-                Logger.error("Error creating collection UDF view", e);
-                return null;
-            }
-        }), view -> view != null);
-    }
-
-    private void addFieldsToGroup(List<View> fieldGroup, ViewGroup parent) {
-        for (View fieldView : fieldGroup) {
-            parent.addView(fieldView);
-        }
-    }
 }
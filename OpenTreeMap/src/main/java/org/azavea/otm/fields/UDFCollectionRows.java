@@ -0,0 +1,85 @@
+package org.azavea.otm.fields;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The entries of a UDF collection group, kept sorted by the group's sort key and indexed by tag.
+ * <p>
+ * Inserts and removals find their position with a binary search rather than re-sorting, and
+ * return that position, so that only the view for the changed row needs to be updated.
+ */
+class UDFCollectionRows {
+
+    // Entries with equal sort values are ordered by tag, so that every entry has a unique position
+    private static final Comparator<UDFCollectionValueField> ORDER = (a, b) -> {
+        int result = a.compareTo(b);
+        if (result != 0) {
+            return result;
+        }
+        return a.getTag() < b.getTag() ? -1 : (a.getTag() == b.getTag() ? 0 : 1);
+    };
+
+    private final List<UDFCollectionValueField> sorted;
+    private final Map<Integer, UDFCollectionValueField> byTag;
+
+    UDFCollectionRows(Collection<UDFCollectionValueField> fields) {
+        sorted = new ArrayList<>(fields);
+        byTag = new HashMap<>(fields.size());
+        Collections.sort(sorted, ORDER);
+        for (UDFCollectionValueField field : sorted) {
+            byTag.put(field.getTag(), field);
+        }
+    }
+
+    int size() {
+        return sorted.size();
+    }
+
+    boolean isEmpty() {
+        return sorted.isEmpty();
+    }
+
+    UDFCollectionValueField get(int position) {
+        return sorted.get(position);
+    }
+
+    List<UDFCollectionValueField> asList() {
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return the position the field was inserted at
+     */
+    int insert(UDFCollectionValueField field) {
+        int position = Collections.binarySearch(sorted, field, ORDER);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        sorted.add(position, field);
+        byTag.put(field.getTag(), field);
+        return position;
+    }
+
+    /**
+     * @return the position the field with the given tag was removed from, or -1 if there is none
+     */
+    int remove(int tag) {
+        UDFCollectionValueField field = byTag.remove(tag);
+        if (field == null) {
+            return -1;
+        }
+        int position = Collections.binarySearch(sorted, field, ORDER);
+        if (position < 0 || sorted.get(position) != field) {
+            // Only possible if the sort values were inconsistent, fall back to a scan
+            position = sorted.indexOf(field);
+        }
+        sorted.remove(position);
+        return position;
+    }
+}
@@ -0,0 +1,87 @@
+package org.azavea.otm.filters;
+
+import com.atlassian.fugue.Either;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.atlassian.fugue.Eithers.filterLeft;
+import static com.atlassian.fugue.Eithers.filterRight;
+
+/**
+ * An immutable snapshot of the active filters, with the tiler query they serialize to.
+ * <p>
+ * The query is built once per snapshot, and doubles as the snapshot's fingerprint: two
+ * snapshots with the same fingerprint filter the map identically, so nothing needs to be
+ * reloaded when going from one to the other.
+ */
+public class ActiveFilters {
+    public static final ActiveFilters NONE = new ActiveFilters(0, Collections.emptyList(), "");
+
+    /**
+     * Increases each time the active filters change
+     */
+    public final long version;
+
+    /**
+     * Comma separated labels of the active filters
+     */
+    public final String display;
+
+    private final Collection<Either<JSONObject, JSONArray>> filters;
+    private final String query;
+
+    public ActiveFilters(long version, Collection<Either<JSONObject, JSONArray>> filters, String display) {
+        this.version = version;
+        this.filters = Collections.unmodifiableCollection(new ArrayList<>(filters));
+        this.display = display;
+        this.query = buildQuery(filters);
+    }
+
+    private static String buildQuery(Collection<Either<JSONObject, JSONArray>> filters) {
+        if (filters.isEmpty()) {
+            return null;
+        }
+        JSONArray parameters = new JSONArray();
+        parameters.put("AND");
+        for (JSONObject filter : filterLeft(filters)) {
+            parameters.put(filter);
+        }
+        for (JSONArray combinedFilters : filterRight(filters)) {
+            parameters.put(combinedFilters);
+        }
+        return parameters.toString();
+    }
+
+    public boolean isEmpty() {
+        return filters.isEmpty();
+    }
+
+    /**
+     * The filter objects to serialize into a tiler query.  Some filters have to be grouped
+     * together into JSONArrays, the others are JSONObjects.
+     */
+    public Collection<Either<JSONObject, JSONArray>> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @return the value of the tiler's "q" parameter, or null if no filters are active
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public String getFingerprint() {
+        return query == null ? "" : query;
+    }
+
+    public boolean sameFiltersAs(ActiveFilters other) {
+        return other != null && getFingerprint().equals(other.getFingerprint());
+    }
+}
@@ -58,6 +58,17 @@ public abstract class BaseFilter {
      */
     public abstract JSONObject getFilterObject();
 
+    /**
+     * Gets the value of this filter, to save in a preset
+     */
+    public abstract Object getState();
+
+    /**
+     * Sets the value of this filter from a saved preset, or resets it if the state is null.
+     * The filter's view isn't updated, so this should only be called when it isn't showing.
+     */
+    public abstract void setState(Object state);
+
     protected JSONObject buildNestedFilter(String identifier, String predicate, Object value) {
         JSONObject filter = null;
         JSONObject predicatePair = new JSONObject();
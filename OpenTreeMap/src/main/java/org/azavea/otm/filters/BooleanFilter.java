@@ -48,6 +48,16 @@ public class BooleanFilter extends BaseFilter {
         return buildNestedFilter(this.identifier, "IS", this.active);
     }
 
+    @Override
+    public Object getState() {
+        return active;
+    }
+
+    @Override
+    public void setState(Object state) {
+        active = Boolean.TRUE.equals(state);
+    }
+
     private void setToggle(View toggle, boolean checked) {
         ((ToggleButton) toggle.findViewById(R.id.active)).setChecked(checked);
     }
@@ -104,6 +104,22 @@ public class ChoiceFilter extends BaseFilter {
         return buildNestedFilter(this.identifier, "IS", choices[this.selectedIndex].getValue());
     }
 
+    @Override
+    public Object getState() {
+        return choices[this.selectedIndex].getValue();
+    }
+
+    @Override
+    public void setState(Object state) {
+        selectedIndex = DEFAULT;
+        for (int i = 0; i < choices.length; i++) {
+            if (choices[i].getValue().equals(state)) {
+                selectedIndex = i;
+                break;
+            }
+        }
+    }
+
     private String getSelectedValueText() {
         String text = "";
         if (isActive()) {
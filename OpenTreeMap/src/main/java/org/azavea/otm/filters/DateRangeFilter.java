@@ -33,6 +33,11 @@ public class DateRangeFilter extends RangeFilter<String> {
         return formatTimestampForDisplay(value);
     }
 
+    @Override
+    protected String valueFromState(@NonNull Object value) {
+        return value.toString();
+    }
+
     @Override
     protected int getFieldResource() {
         return R.layout.filter_date_range_control;
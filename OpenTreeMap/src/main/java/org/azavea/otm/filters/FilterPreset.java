@@ -0,0 +1,93 @@
+package org.azavea.otm.filters;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import org.azavea.helpers.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collection;
+
+/**
+ * A named set of filter values which can be switched back to in one step.
+ * <p>
+ * The preset keeps the state of each filter which was active when it was saved, to restore the
+ * filters, and the tiler query those filters serialized to, so its tiles can be requested without
+ * touching the filters at all.
+ */
+public class FilterPreset {
+    public final String name;
+
+    /**
+     * Comma separated labels of the preset's filters
+     */
+    public final String display;
+
+    /**
+     * The value of the tiler's "q" parameter, or null if the preset has no filters
+     */
+    public final String query;
+
+    /**
+     * A short, stable identifier for the query, computed once when the preset is saved
+     */
+    public final String queryHash;
+
+    // Filter key -> filter state
+    private final JSONObject state;
+
+    private FilterPreset(String name, String display, String query, String queryHash, JSONObject state) {
+        this.name = name;
+        this.display = display;
+        this.query = query;
+        this.queryHash = queryHash;
+        this.state = state;
+    }
+
+    /**
+     * Saves the state of the active filters, which serialize to the given active filter snapshot
+     */
+    public static FilterPreset create(String name, Collection<BaseFilter> filters, ActiveFilters active) {
+        JSONObject state = new JSONObject();
+        for (BaseFilter filter : filters) {
+            if (filter.isActive()) {
+                try {
+                    state.put(filter.key, filter.getState());
+                } catch (JSONException e) {
+                    Logger.error("Could not save the state of filter " + filter.key, e);
+                }
+            }
+        }
+        return new FilterPreset(name, active.display, active.getQuery(), hashQuery(active.getQuery()), state);
+    }
+
+    /**
+     * Sets every filter to its state in this preset, resetting the ones it doesn't include
+     */
+    public void applyTo(Collection<BaseFilter> filters) {
+        for (BaseFilter filter : filters) {
+            filter.setState(state.opt(filter.key));
+        }
+    }
+
+    static String hashQuery(String query) {
+        return query == null ? "" : Hashing.sha1().hashString(query, Charsets.UTF_8).toString();
+    }
+
+    JSONObject toJSON() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("name", name);
+        json.put("display", display);
+        json.put("query", query == null ? JSONObject.NULL : query);
+        json.put("query_hash", queryHash);
+        json.put("state", state);
+        return json;
+    }
+
+    static FilterPreset fromJSON(JSONObject json) throws JSONException {
+        String query = json.isNull("query") ? null : json.getString("query");
+        return new FilterPreset(json.getString("name"), json.optString("display"), query,
+                json.getString("query_hash"), json.getJSONObject("state"));
+    }
+}
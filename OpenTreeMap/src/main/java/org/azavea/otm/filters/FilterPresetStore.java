@@ -0,0 +1,95 @@
+package org.azavea.otm.filters;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.azavea.helpers.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Saves the filter presets of an instance, in the order they were created
+ */
+public class FilterPresetStore {
+    private static final String PREFERENCES_NAME = "filter_presets";
+
+    private final SharedPreferences prefs;
+    private final String key;
+    private List<FilterPreset> presets = null;
+
+    public FilterPresetStore(Context context, int instanceId) {
+        this.prefs = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.key = Integer.toString(instanceId);
+    }
+
+    public List<FilterPreset> getPresets() {
+        if (presets == null) {
+            presets = load();
+        }
+        return Collections.unmodifiableList(presets);
+    }
+
+    public FilterPreset get(String name) {
+        for (FilterPreset preset : getPresets()) {
+            if (preset.name.equals(name)) {
+                return preset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the preset, replacing any preset with the same name
+     */
+    public void put(FilterPreset preset) {
+        getPresets();
+        int existing = presets.indexOf(get(preset.name));
+        if (existing >= 0) {
+            presets.set(existing, preset);
+        } else {
+            presets.add(preset);
+        }
+        save();
+    }
+
+    public void remove(String name) {
+        getPresets();
+        if (presets.remove(get(name))) {
+            save();
+        }
+    }
+
+    private List<FilterPreset> load() {
+        List<FilterPreset> loaded = new ArrayList<>();
+        String saved = prefs.getString(key, null);
+        if (saved == null) {
+            return loaded;
+        }
+        try {
+            JSONArray json = new JSONArray(saved);
+            for (int i = 0; i < json.length(); i++) {
+                loaded.add(FilterPreset.fromJSON(json.getJSONObject(i)));
+            }
+        } catch (JSONException e) {
+            Logger.error("Could not load saved filter presets", e);
+        }
+        return loaded;
+    }
+
+    private void save() {
+        JSONArray json = new JSONArray();
+        try {
+            for (FilterPreset preset : presets) {
+                json.put(preset.toJSON());
+            }
+        } catch (JSONException e) {
+            Logger.error("Could not save filter presets", e);
+            return;
+        }
+        prefs.edit().putString(key, json.toString()).apply();
+    }
+}
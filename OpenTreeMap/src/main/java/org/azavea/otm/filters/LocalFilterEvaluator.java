@@ -0,0 +1,231 @@
+package org.azavea.otm.filters;
+
+import com.atlassian.fugue.Either;
+
+import org.azavea.otm.data.Plot;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Evaluates the active filters against plots which have already been loaded, to give an
+ * immediate estimate of what the filters match while the filtered tiles are being fetched.
+ * <p>
+ * The filter objects sent to the tiler are compiled into predicates, each of which narrows a
+ * set of matching plots one column at a time.  Predicates the evaluator doesn't understand are
+ * skipped, and the result is marked as inexact.
+ */
+public class LocalFilterEvaluator {
+
+    public static class Result {
+        /**
+         * The number of plots which were evaluated
+         */
+        public final int total;
+        public final List<Plot> matches;
+
+        /**
+         * False if some filters couldn't be evaluated locally, so more plots may match than
+         * would on the server
+         */
+        public final boolean exact;
+
+        Result(int total, List<Plot> matches, boolean exact) {
+            this.total = total;
+            this.matches = Collections.unmodifiableList(matches);
+            this.exact = exact;
+        }
+    }
+
+    /**
+     * Narrows the set of matching rows
+     */
+    interface Predicate {
+        void apply(PlotRecords records, BitSet matches);
+    }
+
+    private final List<Predicate> predicates = new ArrayList<>();
+    private boolean exact = true;
+
+    public LocalFilterEvaluator(ActiveFilters filters) {
+        for (Either<JSONObject, JSONArray> filter : filters.getFilters()) {
+            Predicate predicate = filter.isLeft()
+                    ? compile(filter.left().get())
+                    : compileGroup(filter.right().get());
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+    }
+
+    public Result evaluate(PlotRecords records) {
+        BitSet matches = new BitSet(records.size());
+        matches.set(0, records.size());
+        for (Predicate predicate : predicates) {
+            predicate.apply(records, matches);
+        }
+
+        List<Plot> plots = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            plots.add(records.get(i));
+        }
+        return new Result(records.size(), plots, exact);
+    }
+
+    /**
+     * Groups are ["OR", filter, filter...] or ["AND", ...]
+     */
+    private Predicate compileGroup(JSONArray group) {
+        final boolean isOr = "OR".equals(group.optString(0));
+        final List<Predicate> members = new ArrayList<>();
+        for (int i = 1; i < group.length(); i++) {
+            JSONObject member = group.optJSONObject(i);
+            Predicate predicate = member == null ? null : compile(member);
+            if (predicate == null) {
+                // Can't tell which rows an unknown member of an OR would add, so keep all of them
+                if (isOr) {
+                    exact = false;
+                    return null;
+                }
+            } else {
+                members.add(predicate);
+            }
+        }
+        if (!isOr) {
+            return (records, matches) -> {
+                for (Predicate predicate : members) {
+                    predicate.apply(records, matches);
+                }
+            };
+        }
+        return (records, matches) -> {
+            BitSet union = new BitSet(records.size());
+            for (Predicate predicate : members) {
+                BitSet memberMatches = (BitSet) matches.clone();
+                predicate.apply(records, memberMatches);
+                union.or(memberMatches);
+            }
+            matches.and(union);
+        };
+    }
+
+    /**
+     * Filter objects are {identifier: {PREDICATE: value, ...}}
+     */
+    private Predicate compile(JSONObject filter) {
+        Iterator<String> identifiers = filter.keys();
+        if (!identifiers.hasNext()) {
+            return null;
+        }
+        final String identifier = identifiers.next();
+        JSONObject predicate = filter.optJSONObject(identifier);
+        if (predicate == null || PlotRecords.getKeyPath(identifier) == null) {
+            exact = false;
+            return null;
+        }
+
+        if (predicate.has("MIN") || predicate.has("MAX")) {
+            return range(identifier, predicate.opt("MIN"), predicate.opt("MAX"));
+        } else if (predicate.has("IS")) {
+            return is(identifier, predicate.opt("IS"));
+        } else if (predicate.has("ISNULL")) {
+            return isNull(identifier, predicate.optBoolean("ISNULL"));
+        } else if (predicate.has("LIKE")) {
+            return like(identifier, predicate.optString("LIKE"));
+        }
+        exact = false;
+        return null;
+    }
+
+    private static Predicate range(final String identifier, final Object min, final Object max) {
+        if ((min == null || min instanceof Number) && (max == null || max instanceof Number)) {
+            final double low = min == null ? Double.NEGATIVE_INFINITY : ((Number) min).doubleValue();
+            final double high = max == null ? Double.POSITIVE_INFINITY : ((Number) max).doubleValue();
+            return (records, matches) -> {
+                PlotRecords.Column column = records.getColumn(identifier);
+                // Rows without a number can't be in range
+                matches.and(column.numeric);
+                double[] numbers = column.numbers;
+                for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                    if (numbers[i] < low || numbers[i] > high) {
+                        matches.clear(i);
+                    }
+                }
+            };
+        }
+
+        // Date ranges are ISO formatted strings, which sort in date order.  Values may include a
+        // time, so only their date part is compared against the upper bound.
+        final String low = min == null ? null : min.toString();
+        final String high = max == null ? null : max.toString();
+        return (records, matches) -> {
+            PlotRecords.Column column = records.getColumn(identifier);
+            matches.and(column.present);
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                String value = column.text[i];
+                if ((low != null && value.compareTo(low) < 0) || (high != null
+                        && value.substring(0, Math.min(value.length(), high.length())).compareTo(high) > 0)) {
+                    matches.clear(i);
+                }
+            }
+        };
+    }
+
+    private static Predicate is(final String identifier, final Object expected) {
+        if (expected instanceof Number) {
+            final double number = ((Number) expected).doubleValue();
+            return (records, matches) -> {
+                PlotRecords.Column column = records.getColumn(identifier);
+                matches.and(column.numeric);
+                double[] numbers = column.numbers;
+                for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                    if (numbers[i] != number) {
+                        matches.clear(i);
+                    }
+                }
+            };
+        }
+
+        // Booleans and choices may come back as text, in any case
+        final String text = String.valueOf(expected);
+        return (records, matches) -> {
+            PlotRecords.Column column = records.getColumn(identifier);
+            matches.and(column.present);
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                if (!text.equalsIgnoreCase(column.text[i])) {
+                    matches.clear(i);
+                }
+            }
+        };
+    }
+
+    private static Predicate isNull(final String identifier, final boolean isNull) {
+        return (records, matches) -> {
+            PlotRecords.Column column = records.getColumn(identifier);
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                boolean missing = !column.present.get(i) || column.text[i].isEmpty();
+                if (missing != isNull) {
+                    matches.clear(i);
+                }
+            }
+        };
+    }
+
+    private static Predicate like(final String identifier, String expected) {
+        final String text = expected.toLowerCase();
+        return (records, matches) -> {
+            PlotRecords.Column column = records.getColumn(identifier);
+            matches.and(column.present);
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                if (!column.text[i].toLowerCase().contains(text)) {
+                    matches.clear(i);
+                }
+            }
+        };
+    }
+}
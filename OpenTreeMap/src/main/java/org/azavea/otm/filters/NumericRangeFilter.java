@@ -24,6 +24,11 @@ public class NumericRangeFilter extends RangeFilter<Double> {
         return Double.toString(value);
     }
 
+    @Override
+    protected Double valueFromState(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
     @Override
     protected int getFieldResource() {
         return R.layout.filter_numeric_range_control;
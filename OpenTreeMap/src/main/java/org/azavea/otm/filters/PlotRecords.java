@@ -0,0 +1,132 @@
+package org.azavea.otm.filters;
+
+import org.azavea.otm.data.Plot;
+import org.json.JSONObject;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column oriented view of a list of plots, for evaluating filters locally.
+ * <p>
+ * Each search identifier ("tree.diameter", "species.id", ...) is read from every plot once, the
+ * first time a filter uses it.  Numbers are kept in a primitive column, so range and equality
+ * filters compare doubles, rather than looking up and unboxing JSON values for each plot.
+ */
+public class PlotRecords {
+    private final List<Plot> plots;
+    private final Map<String, Column> columns = new HashMap<>();
+
+    public static class Column {
+        /**
+         * Set for plots which have a value, other than JSON null
+         */
+        public final BitSet present;
+
+        /**
+         * Set for plots whose value is, or can be read as, a number
+         */
+        public final BitSet numeric;
+        public final double[] numbers;
+
+        /**
+         * Each value as text, or null if the plot has no value
+         */
+        public final String[] text;
+
+        Column(int size) {
+            present = new BitSet(size);
+            numeric = new BitSet(size);
+            numbers = new double[size];
+            text = new String[size];
+        }
+    }
+
+    public PlotRecords(List<Plot> plots) {
+        this.plots = Collections.unmodifiableList(plots);
+    }
+
+    public int size() {
+        return plots.size();
+    }
+
+    public Plot get(int index) {
+        return plots.get(index);
+    }
+
+    /**
+     * @return the column for a search identifier, or null if the identifier doesn't name a
+     * field which is part of the plot data
+     */
+    public synchronized Column getColumn(String identifier) {
+        if (columns.containsKey(identifier)) {
+            return columns.get(identifier);
+        }
+        String[] keyPath = getKeyPath(identifier);
+        Column column = keyPath == null ? null : readColumn(keyPath);
+        columns.put(identifier, column);
+        return column;
+    }
+
+    private Column readColumn(String[] keyPath) {
+        Column column = new Column(plots.size());
+        for (int i = 0; i < plots.size(); i++) {
+            Object value = getValue(plots.get(i).getData(), keyPath);
+            if (value == null || value == JSONObject.NULL) {
+                continue;
+            }
+            column.present.set(i);
+            column.text[i] = value.toString();
+            if (value instanceof Number) {
+                column.numeric.set(i);
+                column.numbers[i] = ((Number) value).doubleValue();
+            } else if (value instanceof String) {
+                try {
+                    column.numbers[i] = Double.parseDouble((String) value);
+                    column.numeric.set(i);
+                } catch (NumberFormatException e) {
+                    // Not every text value is a number
+                }
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Plots without a tree, or trees without a species, are common, so missing objects along the
+     * path mean there is no value rather than being logged as errors
+     */
+    private static Object getValue(JSONObject data, String[] keyPath) {
+        JSONObject json = data;
+        for (int i = 0; i < keyPath.length - 1 && json != null; i++) {
+            json = json.optJSONObject(keyPath[i]);
+        }
+        return json == null ? null : json.opt(keyPath[keyPath.length - 1]);
+    }
+
+    /**
+     * Search identifiers are "model.field".  Trees and species are nested in the plot data, and
+     * the plot's own fields are under "plot".
+     */
+    static String[] getKeyPath(String identifier) {
+        int dot = identifier.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String model = identifier.substring(0, dot);
+        String field = identifier.substring(dot + 1);
+        switch (model) {
+            case "plot":
+                return new String[]{"plot", field};
+            case "tree":
+                return new String[]{"tree", field};
+            case "species":
+                return new String[]{"tree", "species", field};
+            default:
+                return null;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import android.widget.TextView;
 
 import org.azavea.helpers.Logger;
 import org.azavea.otm.R;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -31,6 +32,11 @@ public abstract class RangeFilter<T> extends BaseFilter {
 
     protected abstract String valueToString(@NonNull T value);
 
+    /**
+     * Reads a value saved by {@link #getState()}
+     */
+    protected abstract T valueFromState(@NonNull Object value);
+
     protected abstract @LayoutRes int getFieldResource();
 
     protected void onFieldLoaded(TextView field, Activity activity) {
@@ -110,4 +116,27 @@ public abstract class RangeFilter<T> extends BaseFilter {
 
         return filter;
     }
+
+    @Override
+    public Object getState() {
+        JSONArray state = new JSONArray();
+        state.put(min == null ? JSONObject.NULL : min);
+        state.put(max == null ? JSONObject.NULL : max);
+        return state;
+    }
+
+    @Override
+    public void setState(Object state) {
+        min = null;
+        max = null;
+        if (state instanceof JSONArray) {
+            JSONArray range = (JSONArray) state;
+            if (!range.isNull(0)) {
+                min = valueFromState(range.opt(0));
+            }
+            if (!range.isNull(1)) {
+                max = valueFromState(range.opt(1));
+            }
+        }
+    }
 }
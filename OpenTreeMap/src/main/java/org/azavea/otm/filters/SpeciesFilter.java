@@ -67,6 +67,21 @@ public class SpeciesFilter extends BaseFilter {
         }
     }
 
+    @Override
+    public Object getState() {
+        return species.getData();
+    }
+
+    @Override
+    public void setState(Object state) {
+        if (state instanceof JSONObject) {
+            species = new Species();
+            species.setData((JSONObject) state);
+        } else {
+            species = null;
+        }
+    }
+
     public void updateSpecies(View view, Species species) {
         String name = "Not filtered";
         if (species != null) {
@@ -47,4 +47,14 @@ public class TextFilter extends BaseFilter {
     public JSONObject getFilterObject() {
         return buildNestedFilter(identifier, "LIKE", text);
     }
+
+    @Override
+    public Object getState() {
+        return text;
+    }
+
+    @Override
+    public void setState(Object state) {
+        text = state instanceof String ? (String) state : null;
+    }
 }
@@ -0,0 +1,142 @@
+package org.azavea.otm.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.os.Build;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Bitmaps which are no longer shown, kept to be drawn or decoded into again instead of allocating
+ * another large bitmap.
+ * <p>
+ * Before KitKat, a bitmap can only be reused for an image of exactly the same size, decoded
+ * without sampling.  From KitKat on, any bitmap with a large enough allocation can be reused.
+ * The least recently returned bitmaps are recycled when the pool grows past its maximum size.
+ */
+public class BitmapPool {
+    private final long maxBytes;
+
+    // Least recently returned first
+    private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+    private long size = 0;
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return a mutable bitmap of the given size, cleared to transparent, from the pool if there
+     * is a suitable one
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int byteCount = width * height * getBytesPerPixel(config);
+        Iterator<Bitmap> candidates = bitmaps.descendingIterator();
+        while (candidates.hasNext()) {
+            Bitmap bitmap = candidates.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                remove(candidates, bitmap);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    && bitmap.getAllocationByteCount() >= byteCount) {
+                remove(candidates, bitmap);
+                bitmap.reconfigure(width, height, config);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        misses++;
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Set {@link BitmapFactory.Options#inBitmap} to a bitmap from the pool which the image
+     * described by the options can be decoded into, if there is one.  The options must hold the
+     * image's bounds, from decoding with {@link BitmapFactory.Options#inJustDecodeBounds}.
+     */
+    public synchronized void setDecodeTarget(BitmapFactory.Options options) {
+        options.inMutable = true;
+        int sampleSize = Math.max(1, options.inSampleSize);
+        int width = ceilDiv(options.outWidth, sampleSize);
+        int height = ceilDiv(options.outHeight, sampleSize);
+        int byteCount = width * height * getBytesPerPixel(options.inPreferredConfig);
+
+        Iterator<Bitmap> candidates = bitmaps.descendingIterator();
+        while (candidates.hasNext()) {
+            Bitmap bitmap = candidates.next();
+            boolean reusable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    ? bitmap.getAllocationByteCount() >= byteCount
+                    : sampleSize == 1 && bitmap.getWidth() == width && bitmap.getHeight() == height;
+            if (reusable) {
+                remove(candidates, bitmap);
+                options.inBitmap = bitmap;
+                return;
+            }
+        }
+        misses++;
+        options.inBitmap = null;
+    }
+
+    /**
+     * Return a bitmap which is no longer shown or used anywhere
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmaps.contains(bitmap)) {
+            return;
+        }
+        bitmaps.addLast(bitmap);
+        size += getSize(bitmap);
+        while (size > maxBytes && !bitmaps.isEmpty()) {
+            Bitmap oldest = bitmaps.removeFirst();
+            size -= getSize(oldest);
+            oldest.recycle();
+        }
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of requests for a bitmap which were met from the pool, or NaN if there
+     * haven't been any
+     */
+    public synchronized double getHitRate() {
+        int requests = hits + misses;
+        return requests == 0 ? Double.NaN : (double) hits / requests;
+    }
+
+    private void remove(Iterator<Bitmap> candidates, Bitmap bitmap) {
+        candidates.remove();
+        size -= getSize(bitmap);
+        hits++;
+    }
+
+    private static long getSize(Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                ? bitmap.getAllocationByteCount() : bitmap.getByteCount();
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        } else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return 4;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
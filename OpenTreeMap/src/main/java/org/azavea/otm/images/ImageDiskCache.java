@@ -0,0 +1,235 @@
+package org.azavea.otm.images;
+
+import android.util.Log;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import org.azavea.otm.App;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The downloaded bytes of images, so they outlive the memory cache and the app's process.
+ * <p>
+ * Each image is a file named by a hash of its url.  Reading an image marks it as used, and the
+ * least recently used images are deleted when the cache grows past its maximum size.
+ * <p>
+ * The order images were used in is kept in a journal file, rather than in the files' modified
+ * times, which can't always be set on Android.  Each use or removal appends a line, and the
+ * journal is rewritten from the index once it has grown well past the number of images.
+ */
+public class ImageDiskCache {
+    private static final String JOURNAL = "journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String REMOVED_PREFIX = "-";
+
+    private final File directory;
+    private final long maxBytes;
+
+    // The size of each image file by name, least recently used first, loaded on first use
+    private LinkedHashMap<String, Long> index = null;
+    private long size = 0;
+    private int journalLines = 0;
+
+    public ImageDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the image's bytes, or null if they aren't cached
+     */
+    public synchronized byte[] get(String url) {
+        loadIndex();
+        String name = getName(url);
+        if (!index.containsKey(name)) {
+            return null;
+        }
+        try {
+            byte[] data = Files.toByteArray(new File(directory, name));
+            // Marks the image as the most recently used
+            index.get(name);
+            appendToJournal(name);
+            return data;
+        } catch (IOException e) {
+            Log.w(App.LOG_TAG, "Could not read cached image", e);
+            removeEntry(name);
+            return null;
+        }
+    }
+
+    public synchronized void put(String url, byte[] data) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(App.LOG_TAG, "Could not create image cache directory " + directory);
+            return;
+        }
+        loadIndex();
+        String name = getName(url);
+        File file = new File(directory, name);
+
+        // Written to a temporary file first, so a partly written image is never read
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        try {
+            Files.write(data, temp);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp);
+            }
+        } catch (IOException e) {
+            Log.w(App.LOG_TAG, "Could not cache image", e);
+            temp.delete();
+            return;
+        }
+        Long previous = index.put(name, (long) data.length);
+        size += data.length - (previous == null ? 0 : previous);
+        appendToJournal(name);
+        trim();
+    }
+
+    /**
+     * Delete an image, such as one whose bytes turned out not to be an image
+     */
+    public synchronized void remove(String url) {
+        loadIndex();
+        removeEntry(getName(url));
+    }
+
+    private String getName(String url) {
+        return Hashing.sha1().hashString(url, Charsets.UTF_8).toString();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> oldest = index.entrySet().iterator();
+        while (size > maxBytes && oldest.hasNext()) {
+            Map.Entry<String, Long> entry = oldest.next();
+            File file = new File(directory, entry.getKey());
+            if (file.delete() || !file.exists()) {
+                size -= entry.getValue();
+                oldest.remove();
+                appendToJournal(REMOVED_PREFIX + entry.getKey());
+            }
+        }
+    }
+
+    private void removeEntry(String name) {
+        Long length = index.remove(name);
+        if (length != null) {
+            size -= length;
+            new File(directory, name).delete();
+            appendToJournal(REMOVED_PREFIX + name);
+        }
+    }
+
+    /**
+     * Replay the journal into the index, and reconcile it with the files which actually exist
+     */
+    private void loadIndex() {
+        if (index != null) {
+            return;
+        }
+        LinkedHashMap<String, Long> used = new LinkedHashMap<>(16, 0.75f, true);
+        File journal = new File(directory, JOURNAL);
+        if (journal.exists()) {
+            try {
+                for (String line : Files.readLines(journal, Charsets.UTF_8)) {
+                    if (line.startsWith(REMOVED_PREFIX)) {
+                        used.remove(line.substring(REMOVED_PREFIX.length()));
+                    } else if (!line.isEmpty()) {
+                        // Moves the image to the most recently used end
+                        used.put(line, 0L);
+                    }
+                    journalLines++;
+                }
+            } catch (IOException e) {
+                Log.w(App.LOG_TAG, "Could not read image cache journal", e);
+            }
+        }
+
+        // Images missing from the journal, such as those written just before the app's process
+        // ended, are treated as the least recently used
+        index = new LinkedHashMap<>(16, 0.75f, true);
+        for (File file : listImageFiles()) {
+            if (!used.containsKey(file.getName())) {
+                index.put(file.getName(), file.length());
+            }
+        }
+        for (String name : used.keySet()) {
+            File file = new File(directory, name);
+            if (file.isFile()) {
+                index.put(name, file.length());
+            }
+        }
+        for (long length : index.values()) {
+            size += length;
+        }
+        rewriteJournal();
+    }
+
+    private void appendToJournal(String line) {
+        journalLines++;
+        if (journalLines > 2 * index.size() + 100) {
+            rewriteJournal();
+            return;
+        }
+        try {
+            Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(new File(directory, JOURNAL), true), Charsets.UTF_8);
+            try {
+                writer.write(line);
+                writer.write('\n');
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            Log.w(App.LOG_TAG, "Could not write image cache journal", e);
+        }
+    }
+
+    /**
+     * Replace the journal with one line for each image, least recently used first
+     */
+    private void rewriteJournal() {
+        if (!directory.isDirectory()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String name : index.keySet()) {
+            lines.append(name).append('\n');
+        }
+        File temp = new File(directory, JOURNAL + TEMP_SUFFIX);
+        try {
+            Files.write(lines, temp, Charsets.UTF_8);
+            if (!temp.renameTo(new File(directory, JOURNAL))) {
+                throw new IOException("Could not rename " + temp);
+            }
+            journalLines = index.size();
+        } catch (IOException e) {
+            Log.w(App.LOG_TAG, "Could not write image cache journal", e);
+            temp.delete();
+        }
+    }
+
+    private List<File> listImageFiles() {
+        List<File> images = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isFile() && !name.equals(JOURNAL) && !name.endsWith(TEMP_SUFFIX)) {
+                    images.add(file);
+                }
+            }
+        }
+        return images;
+    }
+}
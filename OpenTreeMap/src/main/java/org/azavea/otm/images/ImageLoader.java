@@ -0,0 +1,415 @@
+package org.azavea.otm.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.loopj.android.http.BinaryHttpResponseHandler;
+import com.loopj.android.http.RequestHandle;
+
+import org.azavea.otm.App;
+import org.azavea.otm.data.Plot;
+import org.azavea.otm.rest.RequestGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import cz.msebera.android.httpclient.Header;
+
+/**
+ * Loads tree photos and thumbnails for the whole app, through a memory cache of decoded bitmaps
+ * and a disk cache of downloaded bytes.
+ * <p>
+ * Images are read from disk and decoded on a background thread, sampled down to about the size
+ * they are shown at.  Views ask for an image with {@link #load}, and lists say which thumbnails
+ * they are about to show with {@link #prefetch}.  Only a few images are loaded at a time, images
+ * for views go first, and requests for the same image share one download.  Requests which are no
+ * longer wanted by any view or prefetch are dropped, and their downloads cancelled.
+ * <p>
+ * All methods should be called on the main thread, which is also where images are delivered.
+ */
+public class ImageLoader {
+    private static final int MAX_CONCURRENT_REQUESTS = 3;
+    private static final long RETRY_DELAY = 60 * 1000;  // 1 minute
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public interface Callback {
+        /**
+         * @param bitmap the image, or null if it couldn't be loaded
+         */
+        void onImage(Bitmap bitmap);
+    }
+
+    private static class Request {
+        final String url;
+        final int targetSize;
+        final String key;
+        final List<Callback> callbacks = new ArrayList<>();
+
+        // Set once the image is decoded, if it didn't need to be sampled down
+        boolean fullSize = false;
+
+        Request(String url, int targetSize) {
+            this.url = url;
+            this.targetSize = targetSize;
+            this.key = getKey(url, targetSize);
+        }
+    }
+
+    private final ImageMemoryCache memoryCache;
+    private final ImageDiskCache diskCache;
+    private final RequestGenerator requestGenerator = new RequestGenerator();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // The cache key of the image each view is waiting for
+    private final Map<ImageView, String> targets = new WeakHashMap<>();
+
+    // Requests by cache key, and those waiting to start, most wanted first
+    private final Map<String, Request> requests = new HashMap<>();
+    private final List<Request> queue = new ArrayList<>();
+    private int startedCount = 0;
+
+    private final Map<String, Download> downloads = new HashMap<>();
+
+    // When images last failed, so they aren't asked for again on every scroll
+    private final Map<String, Long> failures = new HashMap<>();
+
+    public ImageLoader(ImageMemoryCache memoryCache, ImageDiskCache diskCache) {
+        this.memoryCache = memoryCache;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Show an image in a view, right away if it is in the memory cache.  The view keeps whatever
+     * image it has until the image arrives, so callers should set a placeholder.
+     */
+    public void load(String url, ImageView view) {
+        load(url, view, getTargetSize(view));
+    }
+
+    /**
+     * Show an image in a view, decoded for the given size rather than the view's own.  Lists use
+     * this with the size they {@link #prefetch} for, so a row shares its prefetched request.
+     */
+    public void load(String url, ImageView view, int targetSize) {
+        Bitmap bitmap = memoryCache.get(url, targetSize);
+        if (bitmap != null) {
+            targets.remove(view);
+            view.setImageBitmap(bitmap);
+            return;
+        }
+
+        // A smaller copy, such as a list thumbnail, is shown until the image is decoded at size
+        Bitmap smaller = memoryCache.get(url);
+        if (smaller != null) {
+            view.setImageBitmap(smaller);
+        }
+        targets.put(view, getKey(url, targetSize));
+        request(url, targetSize, true);
+    }
+
+    /**
+     * Load an image for something other than a view, such as a dialog
+     *
+     * @param targetSize the length in pixels of the shorter side of the image as shown
+     */
+    public void load(String url, int targetSize, Callback callback) {
+        Bitmap bitmap = memoryCache.get(url, targetSize);
+        if (bitmap != null) {
+            callback.onImage(bitmap);
+            return;
+        }
+        Request request = request(url, targetSize, true);
+        if (request != null) {
+            request.callbacks.add(callback);
+        } else {
+            callback.onImage(null);
+        }
+    }
+
+    /**
+     * Stop waiting for an image for a view, such as when a list row is reused for a plot without
+     * a photo
+     */
+    public void cancel(ImageView view) {
+        targets.remove(view);
+    }
+
+    /**
+     * Load the thumbnails of plots which are about to be shown.  This replaces the previous
+     * prefetch, so images from it which are not yet loaded, and aren't waited for by a view, are
+     * dropped.
+     *
+     * @param plots      the plots, in the order their thumbnails should be loaded
+     * @param targetSize the size of the views the thumbnails will be shown in, in pixels
+     */
+    public void prefetch(List<Plot> plots, int targetSize) {
+        List<String> urls = new ArrayList<>(plots.size());
+        Set<String> wanted = new HashSet<>(targets.values());
+        for (Plot plot : plots) {
+            String url = plot.getThumbnailUrl();
+            if (url != null) {
+                urls.add(url);
+                wanted.add(getKey(url, targetSize));
+            }
+        }
+
+        Iterator<Request> queued = queue.iterator();
+        while (queued.hasNext()) {
+            Request request = queued.next();
+            if (!isWanted(request, wanted)) {
+                queued.remove();
+                requests.remove(request.key);
+            }
+        }
+        for (Download download : new ArrayList<>(downloads.values())) {
+            if (!download.isWanted(wanted)) {
+                downloads.remove(download.url);
+                download.cancel();
+                for (Request request : download.requests) {
+                    requests.remove(request.key);
+                    startedCount--;
+                }
+            }
+        }
+
+        for (String url : urls) {
+            request(url, targetSize, false);
+        }
+        startRequests();
+    }
+
+    /**
+     * The largest power of two to divide an image's sides by, which keeps its shorter side at
+     * least the target size
+     */
+    public static int getSampleSize(int width, int height, int targetSize) {
+        int shorterSide = Math.min(width, height);
+        int sampleSize = 1;
+        while (targetSize > 0 && shorterSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * @return the request for the image, or null if it is cached or has failed recently
+     */
+    private Request request(String url, int targetSize, boolean urgent) {
+        String key = getKey(url, targetSize);
+        Request request = requests.get(key);
+        if (request == null) {
+            if (memoryCache.get(url, targetSize) != null || hasFailedRecently(url)) {
+                return null;
+            }
+            request = new Request(url, targetSize);
+            requests.put(key, request);
+            queue.add(urgent ? 0 : queue.size(), request);
+        } else if (urgent && queue.remove(request)) {
+            queue.add(0, request);
+        }
+        startRequests();
+        return request;
+    }
+
+    private void startRequests() {
+        while (startedCount < MAX_CONCURRENT_REQUESTS && !queue.isEmpty()) {
+            Request request = queue.remove(0);
+            startedCount++;
+            executor.execute(() -> {
+                byte[] data = diskCache.get(request.url);
+                if (data != null) {
+                    Bitmap bitmap = decode(data, request);
+                    if (bitmap == null && !isImage(data)) {
+                        // Not an image, so it is downloaded again once the retry delay has passed
+                        Log.w(App.LOG_TAG, "Removing unreadable cached image " + request.url);
+                        diskCache.remove(request.url);
+                    }
+                    mainHandler.post(() -> finish(request, bitmap));
+                } else {
+                    mainHandler.post(() -> download(request));
+                }
+            });
+        }
+    }
+
+    private void download(Request request) {
+        Download download = downloads.get(request.url);
+        if (download == null) {
+            download = new Download(request.url);
+            downloads.put(request.url, download);
+            download.requests.add(request);
+            download.requestHandle = requestGenerator.getImage(request.url, download);
+        } else {
+            download.requests.add(request);
+        }
+    }
+
+    private void finish(Request request, Bitmap bitmap) {
+        startedCount--;
+        requests.remove(request.key);
+        if (bitmap != null) {
+            memoryCache.put(request.url, bitmap, request.fullSize);
+        } else {
+            forgetOldFailures();
+            failures.put(request.url, SystemClock.elapsedRealtime());
+        }
+
+        Iterator<Map.Entry<ImageView, String>> waiting = targets.entrySet().iterator();
+        while (waiting.hasNext()) {
+            Map.Entry<ImageView, String> target = waiting.next();
+            if (request.key.equals(target.getValue())) {
+                if (bitmap != null) {
+                    target.getKey().setImageBitmap(bitmap);
+                }
+                waiting.remove();
+            }
+        }
+        for (Callback callback : request.callbacks) {
+            callback.onImage(bitmap);
+        }
+        startRequests();
+    }
+
+    private boolean hasFailedRecently(String url) {
+        Long failedAt = failures.get(url);
+        return failedAt != null && SystemClock.elapsedRealtime() - failedAt < RETRY_DELAY;
+    }
+
+    private void forgetOldFailures() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Long> failedAt = failures.values().iterator();
+        while (failedAt.hasNext()) {
+            if (now - failedAt.next() >= RETRY_DELAY) {
+                failedAt.remove();
+            }
+        }
+    }
+
+    private static boolean isWanted(Request request, Set<String> wanted) {
+        return !request.callbacks.isEmpty() || wanted.contains(request.key);
+    }
+
+    private static Bitmap decode(byte[] data, Request request) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, request.targetSize);
+        request.fullSize = options.inSampleSize == 1;
+        options.inJustDecodeBounds = false;
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (OutOfMemoryError e) {
+            Log.w(App.LOG_TAG, "Not enough memory to decode image", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the bytes don't even have a readable image header
+     */
+    private static boolean isImage(byte[] data) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        return options.outWidth > 0 && options.outHeight > 0;
+    }
+
+    private static int getTargetSize(ImageView view) {
+        int size = Math.min(view.getWidth(), view.getHeight());
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (size <= 0 && params != null) {
+            size = Math.min(params.width, params.height);
+        }
+        if (size <= 0) {
+            // Not laid out yet, and sized by its content
+            DisplayMetrics metrics = view.getResources().getDisplayMetrics();
+            size = Math.min(metrics.widthPixels, metrics.heightPixels) / 2;
+        }
+        return size;
+    }
+
+    private static String getKey(String url, int targetSize) {
+        return url + "#" + targetSize;
+    }
+
+    private class Download extends BinaryHttpResponseHandler {
+        final String url;
+        final List<Request> requests = new ArrayList<>();
+        RequestHandle requestHandle = null;
+
+        Download(String url) {
+            super(Plot.IMAGE_TYPES);
+            this.url = url;
+        }
+
+        boolean isWanted(Set<String> wanted) {
+            for (Request request : requests) {
+                if (ImageLoader.isWanted(request, wanted)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void cancel() {
+            if (requestHandle != null) {
+                requestHandle.cancel(true);
+            }
+        }
+
+        /**
+         * @return false if the download has been cancelled, and its response should be ignored
+         */
+        private boolean end() {
+            if (downloads.get(url) != this) {
+                return false;
+            }
+            downloads.remove(url);
+            return true;
+        }
+
+        @Override
+        public void onSuccess(int statusCode, Header[] headers, byte[] imageData) {
+            if (!end()) {
+                return;
+            }
+            List<Request> waiting = new ArrayList<>(requests);
+            executor.execute(() -> {
+                diskCache.put(url, imageData);
+                for (Request request : waiting) {
+                    Bitmap bitmap = decode(imageData, request);
+                    mainHandler.post(() -> finish(request, bitmap));
+                }
+            });
+        }
+
+        @Override
+        public void onFailure(int statusCode, Header[] headers, byte[] imageData, Throwable e) {
+            if (!end()) {
+                return;
+            }
+            // Not important enough to bother the user, or report
+            Log.w(App.LOG_TAG, "Could not retrieve tree image " + url, e);
+            for (Request request : requests) {
+                finish(request, null);
+            }
+        }
+    }
+}
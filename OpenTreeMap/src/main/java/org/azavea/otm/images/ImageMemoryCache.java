@@ -0,0 +1,66 @@
+package org.azavea.otm.images;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decoded images by url, limited by the memory their bitmaps use.
+ * <p>
+ * Only one bitmap is kept for each image, so an image decoded for a small view can be shown
+ * right away in a larger one.  A larger bitmap replaces a smaller one, but never the other way
+ * around.  Should be used from the main thread.
+ */
+public class ImageMemoryCache extends LruCache<String, Bitmap> {
+
+    // Images which were decoded without being sampled down, so are as large as they can be
+    private final Set<String> fullSize = new HashSet<>();
+
+    /**
+     * @param maxBytes the most memory the cached bitmaps may use
+     */
+    public ImageMemoryCache(int maxBytes) {
+        super(maxBytes);
+    }
+
+    /**
+     * @return the cached image, if its shorter side is at least the target size, or it is the
+     * image at full size
+     */
+    public Bitmap get(String url, int targetSize) {
+        Bitmap bitmap = get(url);
+        if (bitmap == null) {
+            return null;
+        }
+        boolean largeEnough = Math.min(bitmap.getWidth(), bitmap.getHeight()) >= targetSize;
+        return largeEnough || fullSize.contains(url) ? bitmap : null;
+    }
+
+    /**
+     * @param isFullSize whether the image was decoded without being sampled down
+     */
+    public void put(String url, Bitmap bitmap, boolean isFullSize) {
+        Bitmap cached = get(url);
+        if (cached != null && cached.getWidth() >= bitmap.getWidth()) {
+            return;
+        }
+        put(url, bitmap);
+        if (isFullSize) {
+            fullSize.add(url);
+        }
+    }
+
+    @Override
+    protected int sizeOf(String url, Bitmap bitmap) {
+        return bitmap.getByteCount();
+    }
+
+    @Override
+    protected void entryRemoved(boolean evicted, String url, Bitmap oldBitmap, Bitmap newBitmap) {
+        if (newBitmap == null) {
+            fullSize.remove(url);
+        }
+    }
+}
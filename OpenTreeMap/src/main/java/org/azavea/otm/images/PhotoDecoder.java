@@ -0,0 +1,181 @@
+package org.azavea.otm.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.os.Build;
+
+import java.io.IOException;
+
+/**
+ * Decodes photos from the camera or gallery, scaled down and turned upright.
+ * <p>
+ * The photo is decoded into a single bitmap from the {@link BitmapPool}.  When it has to be
+ * rotated, it is decoded a strip of rows at a time, and each strip is drawn rotated into that
+ * bitmap, so the unrotated photo is never held in memory as a whole.
+ */
+public class PhotoDecoder {
+    // Rows of the scaled photo to decode at a time
+    private static final int STRIP_HEIGHT = 64;
+
+    private final BitmapPool pool;
+
+    public PhotoDecoder(BitmapPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param rotation  how far to turn the photo clockwise to make it upright: 0, 90, 180 or 270
+     * @param maxWidth  the photo is scaled down by the largest power of two which keeps it at
+     *                  least about this wide, or as high as maxHeight
+     * @return the photo, or null if it couldn't be decoded.  It can be returned to the pool when
+     * it is no longer needed.
+     */
+    public Bitmap decode(String filePath, int rotation, double maxWidth, double maxHeight) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(filePath, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        // The decoder only samples by powers of two, rounding down
+        int scaleFactor = (int) Math.ceil(Math.min(bounds.outWidth / maxWidth, bounds.outHeight / maxHeight));
+        int sampleSize = Integer.highestOneBit(Math.max(1, scaleFactor));
+
+        Bitmap photo = null;
+        if (rotation % 360 != 0) {
+            photo = decodeRotated(filePath, bounds, sampleSize, rotation);
+        }
+        if (photo == null) {
+            photo = decodeUpright(filePath, bounds, sampleSize);
+            if (photo != null && rotation % 360 != 0) {
+                // Not a format which can be decoded in strips
+                Bitmap rotated = drawRotated(photo, rotation);
+                pool.put(photo);
+                photo = rotated;
+            }
+        }
+        return photo;
+    }
+
+    private Bitmap decodeUpright(String filePath, BitmapFactory.Options bounds, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.outWidth = bounds.outWidth;
+        options.outHeight = bounds.outHeight;
+        pool.setDecodeTarget(options);
+        try {
+            return BitmapFactory.decodeFile(filePath, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap couldn't be reused after all
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(filePath, options);
+        }
+    }
+
+    private Bitmap decodeRotated(String filePath, BitmapFactory.Options bounds, int sampleSize, int rotation) {
+        BitmapRegionDecoder decoder;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(filePath, false);
+        } catch (IOException e) {
+            return null;
+        }
+
+        int width = bounds.outWidth / sampleSize;
+        int height = bounds.outHeight / sampleSize;
+        Bitmap photo = isQuarterTurn(rotation)
+                ? pool.get(height, width, Bitmap.Config.ARGB_8888)
+                : pool.get(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(photo);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        Rect region = new Rect();
+        Matrix matrix = new Matrix();
+        Bitmap strip = null;
+        int stripSourceHeight = STRIP_HEIGHT * sampleSize;
+        try {
+            for (int top = 0; top < bounds.outHeight; top += stripSourceHeight) {
+                region.set(0, top, bounds.outWidth, Math.min(bounds.outHeight, top + stripSourceHeight));
+                strip = decodeStrip(decoder, region, options, strip);
+                if (strip == null) {
+                    pool.put(photo);
+                    return null;
+                }
+                matrix.setTranslate(0, top / sampleSize);
+                rotate(matrix, rotation, width, height);
+                canvas.drawBitmap(strip, matrix, null);
+            }
+        } finally {
+            decoder.recycle();
+            if (strip != null) {
+                strip.recycle();
+            }
+        }
+        return photo;
+    }
+
+    /**
+     * Decode a strip of the photo, into the previous strip if they are the same size
+     */
+    private static Bitmap decodeStrip(BitmapRegionDecoder decoder, Rect region,
+                                      BitmapFactory.Options options, Bitmap previous) {
+        options.inBitmap = null;
+        if (previous != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                && previous.getHeight() * options.inSampleSize == region.height()) {
+            options.inBitmap = previous;
+        }
+        Bitmap strip;
+        try {
+            strip = decoder.decodeRegion(region, options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            strip = decoder.decodeRegion(region, options);
+        }
+        if (previous != null && previous != strip) {
+            previous.recycle();
+        }
+        return strip;
+    }
+
+    private Bitmap drawRotated(Bitmap source, int rotation) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        Bitmap rotated = isQuarterTurn(rotation)
+                ? pool.get(height, width, source.getConfig())
+                : pool.get(width, height, source.getConfig());
+        Matrix matrix = new Matrix();
+        rotate(matrix, rotation, width, height);
+        new Canvas(rotated).drawBitmap(source, matrix, null);
+        return rotated;
+    }
+
+    /**
+     * Turn the matrix clockwise about the origin, then move the turned photo back into view
+     */
+    private static void rotate(Matrix matrix, int rotation, int width, int height) {
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                matrix.postRotate(90);
+                matrix.postTranslate(height, 0);
+                break;
+            case 180:
+                matrix.postRotate(180);
+                matrix.postTranslate(width, height);
+                break;
+            case 270:
+                matrix.postRotate(270);
+                matrix.postTranslate(0, width);
+                break;
+        }
+    }
+
+    private static boolean isQuarterTurn(int rotation) {
+        return (rotation % 360 + 360) % 180 == 90;
+    }
+}
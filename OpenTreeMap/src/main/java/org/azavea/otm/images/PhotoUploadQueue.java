@@ -0,0 +1,341 @@
+package org.azavea.otm.images;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.NotificationManagerCompat;
+import android.util.Log;
+
+import com.google.common.io.Files;
+
+import org.azavea.helpers.Logger;
+import org.azavea.otm.App;
+import org.azavea.otm.R;
+import org.azavea.otm.data.User;
+import org.azavea.otm.images.PhotoUploadStore.PhotoUpload;
+import org.azavea.otm.rest.RequestGenerator;
+import org.azavea.otm.rest.handlers.LoggingJsonHttpResponseHandler;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.client.HttpResponseException;
+
+/**
+ * Uploads tree photos in the background, one at a time, so saving a tree doesn't wait for them.
+ * <p>
+ * Photos are encoded and saved to a {@link PhotoUploadStore} on a background thread, and
+ * uploaded in the order they were added.  Uploads which fail because of the network or the
+ * server are retried, waiting longer after each failure, and uploads left over when the app's
+ * process ended are resumed when the user who added them next logs in.  Progress is shown in a
+ * notification.
+ * <p>
+ * All methods should be called on the main thread, which is also where listeners are called.
+ */
+public class PhotoUploadQueue {
+    private static final int PROGRESS_NOTIFICATION_ID = 1;
+    private static final int FAILURE_NOTIFICATION_ID = 2;
+
+    private static final long MIN_RETRY_DELAY = 30 * 1000;  // 30 seconds
+    private static final long MAX_RETRY_DELAY = 30 * 60 * 1000;  // 30 minutes
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public interface Listener {
+        /**
+         * @param image the new photo, as returned by the API, which can be added to the plot with
+         *              {@link org.azavea.otm.data.Plot#assignNewTreePhoto}
+         */
+        void onPhotoUploaded(int plotId, JSONObject image);
+    }
+
+    private final Context context;
+    private final PhotoUploadStore store;
+    private final BitmapPool pool;
+    private final NotificationManagerCompat notificationManager;
+    private final RequestGenerator requestGenerator = new RequestGenerator();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // Uploads waiting to start, oldest first
+    private final LinkedList<PhotoUpload> pending = new LinkedList<>();
+    private PhotoUpload current = null;
+    private int lastProgress = -1;
+    private boolean loaded = false;
+
+    // Counts since the queue was last empty, for the notification
+    private int uploadedCount = 0;
+    private int addedCount = 0;
+
+    private long retryDelay = MIN_RETRY_DELAY;
+    private final Runnable retry = this::next;
+
+    public PhotoUploadQueue(Context context, PhotoUploadStore store, BitmapPool pool) {
+        this.context = context.getApplicationContext();
+        this.store = store;
+        this.pool = pool;
+        this.notificationManager = NotificationManagerCompat.from(this.context);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Upload a photo for a plot, as the logged in user.  The queue takes the photo, and returns
+     * it to the bitmap pool once it has been saved.
+     */
+    public void add(final String instanceUrlName, final int plotId, final Bitmap photo) {
+        final String userName = getLoggedInUserName();
+        if (userName == null) {
+            pool.put(photo);
+            showFailure();
+            return;
+        }
+        executor.execute(() -> {
+            final PhotoUpload upload = store.add(instanceUrlName, plotId, userName, photo);
+            mainHandler.post(() -> {
+                pool.put(photo);
+                if (upload == null) {
+                    showFailure();
+                } else if (loaded && !pending.contains(upload)) {
+                    // Otherwise it will be loaded with the rest of the saved uploads
+                    pending.add(upload);
+                    addedCount++;
+                }
+                next();
+            });
+        });
+        resume();
+    }
+
+    /**
+     * Start any uploads saved before the app's process last ended.  Uploads wait until the user
+     * who added them is logged in, so this should be called again after logging in.
+     */
+    public void resume() {
+        if (loaded) {
+            mainHandler.removeCallbacks(retry);
+            next();
+            return;
+        }
+        executor.execute(() -> {
+            final List<PhotoUpload> saved = store.getUploads();
+            mainHandler.post(() -> {
+                if (!loaded) {
+                    loaded = true;
+                    for (PhotoUpload upload : saved) {
+                        pending.add(upload);
+                        addedCount++;
+                    }
+                }
+                next();
+            });
+        });
+    }
+
+    private void next() {
+        if (current != null) {
+            return;
+        }
+        mainHandler.removeCallbacks(retry);
+        current = getNextForUser();
+        if (current == null) {
+            showProgress();
+            return;
+        }
+        lastProgress = -1;
+        showProgress();
+
+        final PhotoUpload upload = current;
+        executor.execute(() -> {
+            byte[] jpeg = null;
+            try {
+                jpeg = Files.toByteArray(store.getFile(upload));
+            } catch (IOException e) {
+                Log.w(App.LOG_TAG, "Could not read photo for upload", e);
+            }
+            final byte[] data = jpeg;
+            mainHandler.post(() -> {
+                if (data == null) {
+                    finish(upload, null);
+                } else {
+                    send(upload, data);
+                }
+            });
+        });
+    }
+
+    private PhotoUpload getNextForUser() {
+        String userName = getLoggedInUserName();
+        if (userName == null) {
+            return null;
+        }
+        for (PhotoUpload upload : pending) {
+            if (upload.userName.equals(userName)) {
+                pending.remove(upload);
+                return upload;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the logged in user, or null if no one is logged in
+     */
+    private static String getLoggedInUserName() {
+        User user = App.getLoginManager().loggedInUser;
+        if (user == null) {
+            return null;
+        }
+        try {
+            return user.getUserName();
+        } catch (JSONException e) {
+            Logger.error("Could not get user name", e);
+            return null;
+        }
+    }
+
+    private void send(final PhotoUpload upload, byte[] jpeg) {
+        if (!upload.userName.equals(getLoggedInUserName())) {
+            // Logged out since the upload was started
+            pending.addFirst(upload);
+            current = null;
+            showProgress();
+            return;
+        }
+        try {
+            requestGenerator.addTreePhoto(upload.instanceUrlName, upload.plotId, jpeg,
+                    new LoggingJsonHttpResponseHandler() {
+                        @Override
+                        public void onProgress(long bytesWritten, long totalSize) {
+                            if (totalSize > 0) {
+                                int progress = (int) (100 * bytesWritten / totalSize);
+                                if (progress != lastProgress) {
+                                    lastProgress = progress;
+                                    showProgress();
+                                }
+                            }
+                        }
+    
+                        @Override
+                        public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
+                            if (response != null && response.has("image")) {
+                                finish(upload, response);
+                            } else {
+                                Logger.error("Tree photo upload returned no image");
+                                finish(upload, null);
+                            }
+                        }
+    
+                        @Override
+                        public void failure(Throwable e, String message) {
+                            if (isPermanentFailure(e)) {
+                                Logger.error(context.getString(R.string.save_tree_photo_failure), e);
+                                finish(upload, null);
+                            } else {
+                                retryLater(upload);
+                            }
+                        }
+                    });
+        } catch (JSONException e) {
+            Logger.error("Could not upload tree photo", e);
+            retryLater(upload);
+        }
+    }
+
+    /**
+     * Remove the upload from the queue, whether or not it succeeded, and start the next one
+     */
+    private void finish(final PhotoUpload upload, JSONObject image) {
+        executor.execute(() -> store.remove(upload));
+        current = null;
+        if (image != null) {
+            uploadedCount++;
+            retryDelay = MIN_RETRY_DELAY;
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.onPhotoUploaded(upload.plotId, image);
+            }
+        } else {
+            addedCount--;
+            showFailure();
+        }
+        next();
+    }
+
+    private void retryLater(PhotoUpload upload) {
+        pending.addFirst(upload);
+        current = null;
+        showProgress();
+        mainHandler.postDelayed(retry, retryDelay);
+        retryDelay = Math.min(MAX_RETRY_DELAY, retryDelay * 2);
+    }
+
+    /**
+     * Client errors other than authentication won't go away by trying again
+     */
+    private static boolean isPermanentFailure(Throwable e) {
+        if (e instanceof HttpResponseException) {
+            int status = ((HttpResponseException) e).getStatusCode();
+            return status >= 400 && status < 500 && status != 401 && status != 408 && status != 429;
+        }
+        return false;
+    }
+
+    private void showProgress() {
+        int remaining = addedCount - uploadedCount;
+        if (remaining <= 0) {
+            notificationManager.cancel(PROGRESS_NOTIFICATION_ID);
+            if (uploadedCount > 0) {
+                showDone();
+            }
+            uploadedCount = 0;
+            addedCount = 0;
+            return;
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
+                .setSmallIcon(android.R.drawable.stat_sys_upload)
+                .setContentTitle(context.getResources().getQuantityString(
+                        R.plurals.photo_upload_title, remaining, remaining))
+                .setOngoing(current != null);
+        if (current != null) {
+            builder.setContentText(context.getString(R.string.photo_upload_progress,
+                    uploadedCount + 1, addedCount))
+                    .setProgress(100, Math.max(0, lastProgress), lastProgress < 0);
+        } else {
+            builder.setContentText(context.getString(R.string.photo_upload_waiting));
+        }
+        notificationManager.notify(PROGRESS_NOTIFICATION_ID, builder.build());
+    }
+
+    private void showDone() {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
+                .setSmallIcon(android.R.drawable.stat_sys_upload_done)
+                .setContentTitle(context.getResources().getQuantityString(
+                        R.plurals.photo_upload_done, uploadedCount, uploadedCount))
+                .setAutoCancel(true);
+        notificationManager.notify(PROGRESS_NOTIFICATION_ID, builder.build());
+    }
+
+    private void showFailure() {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
+                .setSmallIcon(android.R.drawable.stat_notify_error)
+                .setContentTitle(context.getString(R.string.save_tree_photo_failure))
+                .setAutoCancel(true);
+        notificationManager.notify(FAILURE_NOTIFICATION_ID, builder.build());
+    }
+}
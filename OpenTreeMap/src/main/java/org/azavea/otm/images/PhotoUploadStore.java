@@ -0,0 +1,180 @@
+package org.azavea.otm.images;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.azavea.helpers.Logger;
+import org.azavea.otm.App;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tree photos waiting to be uploaded, so they outlive the app's process.
+ * <p>
+ * Each photo is kept as a JPEG file in a directory, and the list of uploads, in the order they
+ * were added, is kept in shared preferences.
+ * <p>
+ * These methods do disk I/O and should not be called on the UI thread.
+ */
+public class PhotoUploadStore {
+    private static final String PREFERENCES_NAME = "photo_uploads";
+    private static final String UPLOADS_KEY = "uploads";
+    private static final int JPEG_QUALITY = 55;
+
+    public static class PhotoUpload {
+        public final String id;
+        public final String instanceUrlName;
+        public final int plotId;
+        public final String userName;
+
+        PhotoUpload(String id, String instanceUrlName, int plotId, String userName) {
+            this.id = id;
+            this.instanceUrlName = instanceUrlName;
+            this.plotId = plotId;
+            this.userName = userName;
+        }
+
+        JSONObject toJSON() throws JSONException {
+            return new JSONObject()
+                    .put("id", id)
+                    .put("instance", instanceUrlName)
+                    .put("plot", plotId)
+                    .put("user", userName);
+        }
+
+        static PhotoUpload fromJSON(JSONObject json) throws JSONException {
+            return new PhotoUpload(json.getString("id"), json.getString("instance"),
+                    json.getInt("plot"), json.getString("user"));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PhotoUpload && id.equals(((PhotoUpload) o).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final File directory;
+    private List<PhotoUpload> uploads = null;
+
+    public PhotoUploadStore(Context context, File directory) {
+        this.prefs = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.directory = directory;
+    }
+
+    public synchronized List<PhotoUpload> getUploads() {
+        if (uploads == null) {
+            uploads = load();
+        }
+        return new ArrayList<>(uploads);
+    }
+
+    /**
+     * Encode the photo and add it to the end of the list
+     *
+     * @return the upload, or null if the photo couldn't be saved
+     */
+    public synchronized PhotoUpload add(String instanceUrlName, int plotId, String userName, Bitmap photo) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(App.LOG_TAG, "Could not create photo upload directory " + directory);
+            return null;
+        }
+        PhotoUpload upload = new PhotoUpload(UUID.randomUUID().toString(), instanceUrlName, plotId, userName);
+        File file = getFile(upload);
+
+        // Written to a temporary file first, so a partly written photo is never uploaded
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+            try {
+                if (!photo.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                    throw new IOException("Could not encode photo");
+                }
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp);
+            }
+        } catch (IOException e) {
+            Log.w(App.LOG_TAG, "Could not save photo for upload", e);
+            temp.delete();
+            return null;
+        }
+
+        getUploads();
+        uploads.add(upload);
+        if (!save()) {
+            uploads.remove(upload);
+            file.delete();
+            return null;
+        }
+        return upload;
+    }
+
+    /**
+     * Remove the upload from the list, and delete its photo
+     */
+    public synchronized void remove(PhotoUpload upload) {
+        getUploads();
+        if (uploads.remove(upload)) {
+            save();
+        }
+        getFile(upload).delete();
+    }
+
+    public File getFile(PhotoUpload upload) {
+        return new File(directory, upload.id + ".jpg");
+    }
+
+    private List<PhotoUpload> load() {
+        List<PhotoUpload> loaded = new ArrayList<>();
+        String saved = prefs.getString(UPLOADS_KEY, null);
+        if (saved == null) {
+            return loaded;
+        }
+        try {
+            JSONArray json = new JSONArray(saved);
+            for (int i = 0; i < json.length(); i++) {
+                PhotoUpload upload = PhotoUpload.fromJSON(json.getJSONObject(i));
+                if (getFile(upload).exists()) {
+                    loaded.add(upload);
+                }
+            }
+        } catch (JSONException e) {
+            Logger.error("Could not load saved photo uploads", e);
+        }
+        return loaded;
+    }
+
+    private boolean save() {
+        JSONArray json = new JSONArray();
+        try {
+            for (PhotoUpload upload : uploads) {
+                json.put(upload.toJSON());
+            }
+        } catch (JSONException e) {
+            Logger.error("Could not save photo uploads", e);
+            return false;
+        }
+        // Committed right away, since the process may not live until a later write
+        return prefs.edit().putString(UPLOADS_KEY, json.toString()).commit();
+    }
+}
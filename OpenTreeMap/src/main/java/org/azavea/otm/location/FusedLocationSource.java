@@ -0,0 +1,126 @@
+package org.azavea.otm.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+
+import org.azavea.helpers.Logger;
+
+/**
+ * Gets fixes from the fused location provider of Google Play Services
+ */
+public class FusedLocationSource implements LocationSource, GoogleApiClient.ConnectionCallbacks {
+    private final LocationManager locationManager;
+    private final GoogleApiClient client;
+
+    private LocationService.Request request = null;
+    private Callback callback = null;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(LocationResult result) {
+            if (callback != null) {
+                callback.onLocations(result.getLocations());
+            }
+        }
+    };
+
+    public FusedLocationSource(Context context) {
+        this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+        this.client = new GoogleApiClient.Builder(context)
+                .addApi(LocationServices.API)
+                .addConnectionCallbacks(this)
+                .build();
+    }
+
+    @Override
+    public void start(LocationService.Request request, Callback callback) {
+        this.request = request;
+        this.callback = callback;
+        if (client.isConnected()) {
+            requestUpdates();
+        } else if (!client.isConnecting()) {
+            client.connect();
+        }
+    }
+
+    @Override
+    public void stop() {
+        request = null;
+        callback = null;
+        if (client.isConnected()) {
+            LocationServices.FusedLocationApi.removeLocationUpdates(client, locationCallback);
+        }
+        client.disconnect();
+    }
+
+    @Override
+    public void onConnected(Bundle bundle) {
+        if (request != null) {
+            requestUpdates();
+        }
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        // The client reconnects by itself, and then onConnected requests updates again
+    }
+
+    private void requestUpdates() {
+        LocationRequest locationRequest = LocationRequest.create()
+                .setPriority(getPriority(request.accuracy))
+                .setInterval(request.intervalMillis)
+                .setFastestInterval(request.intervalMillis)
+                .setSmallestDisplacement(request.minDistance)
+                .setMaxWaitTime(request.maxDelayMillis);
+        try {
+            LocationServices.FusedLocationApi.requestLocationUpdates(
+                    client, locationRequest, locationCallback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            Logger.warning("No permission to request location updates", e);
+        }
+    }
+
+    private static int getPriority(LocationService.Accuracy accuracy) {
+        switch (accuracy) {
+            case HIGH:
+                return LocationRequest.PRIORITY_HIGH_ACCURACY;
+            case BALANCED:
+                return LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+            default:
+                return LocationRequest.PRIORITY_LOW_POWER;
+        }
+    }
+
+    @Override
+    public Location getLastKnownLocation() {
+        try {
+            if (client.isConnected()) {
+                Location location = LocationServices.FusedLocationApi.getLastLocation(client);
+                if (location != null) {
+                    return location;
+                }
+            }
+            // The most recent of the last locations of each of the device's providers
+            Location latest = null;
+            for (String provider : locationManager.getProviders(true)) {
+                Location location = locationManager.getLastKnownLocation(provider);
+                if (location != null && (latest == null || location.getTime() > latest.getTime())) {
+                    latest = location;
+                }
+            }
+            return latest;
+        } catch (SecurityException e) {
+            Logger.warning("No permission to get the last location", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.azavea.otm.location;
+
+import android.location.Location;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single source of location updates for the whole app.
+ * <p>
+ * Each subscriber asks for the accuracy, interval and minimum movement it needs.  The service
+ * requests one set of updates from its {@link LocationSource} which satisfies all of them: the
+ * best accuracy, and the shortest interval, distance and batching delay asked for.  Each fix is
+ * then only passed on to the subscribers whose own interval and distance it meets.
+ * <p>
+ * While the app is in the background, updates are requested in low power mode, no more often
+ * than once a minute, and batched.
+ * <p>
+ * All methods should be called on the main thread, which is also where fixes are delivered.
+ */
+public class LocationService {
+    static final long BACKGROUND_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    static final long BACKGROUND_MAX_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+    // Fixes a little early for a subscriber's interval are still delivered, so that fixes at the
+    // requested interval aren't dropped because of jitter
+    private static final double INTERVAL_TOLERANCE = 0.8;
+
+    public enum Accuracy {
+        LOW_POWER, BALANCED, HIGH
+    }
+
+    public interface Listener {
+        void onLocation(Location location);
+    }
+
+    public static class Request {
+        public final Accuracy accuracy;
+        public final long intervalMillis;
+
+        /**
+         * How far the device has to move before there is a new fix, in meters
+         */
+        public final float minDistance;
+
+        /**
+         * How long fixes can be held back to be delivered together, saving power
+         */
+        public final long maxDelayMillis;
+
+        public Request(Accuracy accuracy, long intervalMillis, float minDistance, long maxDelayMillis) {
+            this.accuracy = accuracy;
+            this.intervalMillis = intervalMillis;
+            this.minDistance = minDistance;
+            this.maxDelayMillis = maxDelayMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Request)) {
+                return false;
+            }
+            Request other = (Request) o;
+            return accuracy == other.accuracy && intervalMillis == other.intervalMillis
+                    && minDistance == other.minDistance && maxDelayMillis == other.maxDelayMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(accuracy, intervalMillis, minDistance, maxDelayMillis);
+        }
+    }
+
+    private static class Subscription {
+        final Request request;
+        Location lastDelivered = null;
+
+        Subscription(Request request) {
+            this.request = request;
+        }
+    }
+
+    private final LocationSource source;
+    private final Ticker ticker;
+    private final Map<Listener, Subscription> subscriptions = new LinkedHashMap<>();
+    private Request activeRequest = null;
+    private boolean inBackground = false;
+
+    // Metrics
+    private Location lastFix = null;
+    private long lastFixReceivedNanos;
+    private long lastFixDelayMillis;
+    private int batchCount = 0;
+    private int fixCount = 0;
+    private double accuracyTotal = 0;
+    private int accuracyCount = 0;
+
+    public LocationService(LocationSource source) {
+        this(source, Ticker.systemTicker());
+    }
+
+    public LocationService(LocationSource source, Ticker ticker) {
+        this.source = source;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Start sending fixes to the listener.  Subscribing again with the same listener replaces its
+     * request.
+     */
+    public void subscribe(Request request, Listener listener) {
+        subscriptions.put(listener, new Subscription(request));
+        updateSource();
+    }
+
+    public void unsubscribe(Listener listener) {
+        if (subscriptions.remove(listener) != null) {
+            updateSource();
+        }
+    }
+
+    /**
+     * Called as the app moves between the foreground and the background
+     */
+    public void setInBackground(boolean inBackground) {
+        if (this.inBackground != inBackground) {
+            this.inBackground = inBackground;
+            updateSource();
+        }
+    }
+
+    /**
+     * @return the latest fix the service has received, or the device's last known location
+     */
+    public Location getLastLocation() {
+        return lastFix != null ? lastFix : source.getLastKnownLocation();
+    }
+
+    /**
+     * @return the request currently made of the source, or null if there are no subscribers
+     */
+    public Request getActiveRequest() {
+        return activeRequest;
+    }
+
+    /**
+     * @return how old the latest fix is, in milliseconds, or -1 if there hasn't been one
+     */
+    public long getLastFixAgeMillis() {
+        if (lastFix == null) {
+            return -1;
+        }
+        long sinceReceived = TimeUnit.NANOSECONDS.toMillis(ticker.read() - lastFixReceivedNanos);
+        return sinceReceived + lastFixDelayMillis;
+    }
+
+    /**
+     * @return the accuracy of the latest fix in meters, or NaN if it has no accuracy
+     */
+    public float getLastFixAccuracy() {
+        return lastFix != null && lastFix.hasAccuracy() ? lastFix.getAccuracy() : Float.NaN;
+    }
+
+    /**
+     * @return the mean accuracy of all the fixes received, in meters, or NaN
+     */
+    public double getMeanAccuracy() {
+        return accuracyCount == 0 ? Double.NaN : accuracyTotal / accuracyCount;
+    }
+
+    public int getFixCount() {
+        return fixCount;
+    }
+
+    /**
+     * The number of times the source has reported fixes.  Fewer batches than fixes means fixes
+     * are being batched.
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    private void updateSource() {
+        Request request = combineRequests();
+        if (Objects.equal(request, activeRequest)) {
+            return;
+        }
+        activeRequest = request;
+        if (request == null) {
+            source.stop();
+        } else {
+            source.start(request, this::onLocations);
+        }
+    }
+
+    private Request combineRequests() {
+        if (subscriptions.isEmpty()) {
+            return null;
+        }
+        Accuracy accuracy = Accuracy.LOW_POWER;
+        long interval = Long.MAX_VALUE;
+        float distance = Float.MAX_VALUE;
+        long maxDelay = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions.values()) {
+            Request request = subscription.request;
+            if (request.accuracy.compareTo(accuracy) > 0) {
+                accuracy = request.accuracy;
+            }
+            interval = Math.min(interval, request.intervalMillis);
+            distance = Math.min(distance, request.minDistance);
+            maxDelay = Math.min(maxDelay, request.maxDelayMillis);
+        }
+        if (inBackground) {
+            accuracy = Accuracy.LOW_POWER;
+            interval = Math.max(interval, BACKGROUND_INTERVAL);
+            maxDelay = Math.max(maxDelay, BACKGROUND_MAX_DELAY);
+        }
+        return new Request(accuracy, interval, distance, maxDelay);
+    }
+
+    void onLocations(List<Location> fixes) {
+        if (fixes.isEmpty()) {
+            return;
+        }
+        batchCount++;
+        for (Location fix : fixes) {
+            fixCount++;
+            if (fix.hasAccuracy()) {
+                accuracyTotal += fix.getAccuracy();
+                accuracyCount++;
+            }
+        }
+
+        // Only the latest fix of a batch is of interest to subscribers
+        Location latest = fixes.get(fixes.size() - 1);
+        lastFix = latest;
+        lastFixReceivedNanos = ticker.read();
+        lastFixDelayMillis = Math.max(0, System.currentTimeMillis() - latest.getTime());
+
+        // Listeners may unsubscribe as they're called
+        for (Map.Entry<Listener, Subscription> entry : new LinkedHashMap<>(subscriptions).entrySet()) {
+            Subscription subscription = entry.getValue();
+            if (subscriptions.get(entry.getKey()) == subscription && isDue(subscription, latest)) {
+                subscription.lastDelivered = latest;
+                entry.getKey().onLocation(latest);
+            }
+        }
+    }
+
+    private static boolean isDue(Subscription subscription, Location fix) {
+        Location last = subscription.lastDelivered;
+        if (last == null) {
+            return true;
+        }
+        Request request = subscription.request;
+        return fix.getTime() - last.getTime() >= request.intervalMillis * INTERVAL_TOLERANCE
+                && last.distanceTo(fix) >= request.minDistance;
+    }
+}
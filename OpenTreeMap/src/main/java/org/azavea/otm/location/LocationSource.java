@@ -0,0 +1,31 @@
+package org.azavea.otm.location;
+
+import android.location.Location;
+
+import java.util.List;
+
+/**
+ * Where the {@link LocationService} gets its fixes from.  The service only ever asks for one set of
+ * updates at a time, which meets the needs of all its subscribers.
+ */
+public interface LocationSource {
+    interface Callback {
+        /**
+         * @param fixes one or more fixes, oldest first.  Several fixes are reported together
+         *              when the source batches them.
+         */
+        void onLocations(List<Location> fixes);
+    }
+
+    /**
+     * Start reporting fixes, replacing any earlier request
+     */
+    void start(LocationService.Request request, Callback callback);
+
+    void stop();
+
+    /**
+     * @return the most recent location the device knows of, or null
+     */
+    Location getLastKnownLocation();
+}
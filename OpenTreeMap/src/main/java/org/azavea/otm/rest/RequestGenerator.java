@@ -7,6 +7,7 @@ import android.graphics.Bitmap;
 import com.loopj.android.http.AsyncHttpResponseHandler;
 import com.loopj.android.http.BinaryHttpResponseHandler;
 import com.loopj.android.http.JsonHttpResponseHandler;
+import com.loopj.android.http.RequestHandle;
 import com.loopj.android.http.RequestParams;
 
 import org.azavea.helpers.Logger;
@@ -16,6 +17,7 @@ import org.azavea.otm.data.InstanceInfo;
 import org.azavea.otm.data.Model;
 import org.azavea.otm.data.Password;
 import org.azavea.otm.data.Plot;
+import org.azavea.otm.data.PlotChangeSet;
 import org.azavea.otm.data.PlotContainer;
 import org.azavea.otm.data.User;
 import org.azavea.otm.rest.handlers.ContainerRestHandler;
@@ -56,8 +58,8 @@ public class RequestGenerator {
         client.get("/plots/" + id, null, handler);
     }
 
-    public void getImage(String imageUrl, BinaryHttpResponseHandler binaryHttpResponseHandler) {
-        client.getImage(imageUrl, binaryHttpResponseHandler);
+    public RequestHandle getImage(String imageUrl, BinaryHttpResponseHandler binaryHttpResponseHandler) {
+        return client.getImage(imageUrl, binaryHttpResponseHandler);
     }
 
     /*
@@ -105,6 +107,24 @@ public class RequestGenerator {
         getPlotsNearLocation(geoY, geoX, params, handler);
     }
 
+    /**
+     * Request the plots nearest a location, within a distance
+     *
+     * @param maxPlots the most plots to return, nearest first
+     * @param distance how far from the location to look, in meters
+     */
+    public void getPlotsNearLocation(double geoY, double geoX, boolean recent, boolean pending,
+                                     int maxPlots, double distance,
+                                     ContainerRestHandler<PlotContainer> handler) {
+        RequestParams params = new RequestParams();
+        params.put("max_plots", Integer.toString(maxPlots));
+        params.put("distance", Double.toString(distance));
+        params.put("filter_recent", Boolean.toString(recent));
+        params.put("filter_pending", Boolean.toString(pending));
+
+        getPlotsNearLocation(geoY, geoX, params, handler);
+    }
+
     public void getPublicInstances(JsonHttpResponseHandler handler) {
         client.get("instances", null, handler);
     }
@@ -141,11 +161,13 @@ public class RequestGenerator {
                            AsyncHttpResponseHandler handler) {
         if (loginManager.isLoggedIn()) {
             try {
-                final Plot plotCopy = getPlotCopy(plot);
+                // Only send up the fields which were edited
+                final PlotChangeSet changes = plot.getChangeSet();
+                final Plot plotDelta = new Plot(changes.toJSON());
 
                 client.putWithAuthentication(getInstanceNameUri("plots/"),
                         loginManager.loggedInUser.getUserName(),
-                        loginManager.loggedInUser.getPassword(), plot.getId(), plotCopy, handler);
+                        loginManager.loggedInUser.getPassword(), plot.getId(), plotDelta, handler);
             } catch (JSONException e) {
                 handleBadResponse(e);
             }
@@ -200,11 +222,14 @@ public class RequestGenerator {
                 handler);
     }
 
-    public void addTreePhoto(Plot plot, Bitmap bm,
+    /**
+     * Upload a tree photo which has already been encoded, to a plot in the given instance
+     */
+    public void addTreePhoto(String instanceUrlName, int plotId, byte[] jpeg,
                              JsonHttpResponseHandler handler)
             throws JSONException {
-        String formattedPath = String.format("plots/%s/tree/photo", plot.getId());
-        client.postWithAuthentication(getInstanceNameUri(formattedPath), bm,
+        String path = String.format("/instance/%s/plots/%s/tree/photo", instanceUrlName, plotId);
+        client.postWithAuthentication(path, jpeg, jpeg.length,
                 loginManager.loggedInUser.getUserName(),
                 loginManager.loggedInUser.getPassword(),
                 handler, PHOTOUPLOADTIMEOUT);
@@ -54,6 +54,14 @@ public class RequestSignature {
      * the timestamp already appended.
      */
     public String getSignature(String verb, String url, byte[] body) throws URISyntaxException, SignatureException {
+        return getSignature(verb, url, body, body.length);
+    }
+
+    /**
+     * @param length how many bytes at the start of the body array are the body
+     */
+    public String getSignature(String verb, String url, byte[] body, int length)
+            throws URISyntaxException, SignatureException {
 
         URI uri = new URI(url);
         String hostWithPort = uri.getAuthority();
@@ -75,7 +83,7 @@ public class RequestSignature {
         String sortedQuery = TextUtils.join("&", query);
 
         String payload = verb + "\n" + hostWithPort + "\n" + path + "\n" + sortedQuery
-                + Base64.encodeToString(body, Base64.NO_WRAP);
+                + Base64.encodeToString(body, 0, length, Base64.NO_WRAP);
 
         String signature = calculateHMAC(payload);
         return signature;
@@ -96,7 +104,12 @@ public class RequestSignature {
 
     public Header getSignatureHeader(String verb, String url, byte[] body)
             throws URISyntaxException, SignatureException {
-        String sig = getSignature(verb, url, body);
+        return getSignatureHeader(verb, url, body, body.length);
+    }
+
+    public Header getSignatureHeader(String verb, String url, byte[] body, int length)
+            throws URISyntaxException, SignatureException {
+        String sig = getSignature(verb, url, body, length);
         return new BasicHeader("X-Signature", sig);
     }
 
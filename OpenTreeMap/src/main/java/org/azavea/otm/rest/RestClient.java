@@ -11,6 +11,7 @@ import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.AsyncHttpResponseHandler;
 import com.loopj.android.http.BinaryHttpResponseHandler;
 import com.loopj.android.http.JsonHttpResponseHandler;
+import com.loopj.android.http.RequestHandle;
 import com.loopj.android.http.RequestParams;
 
 import org.azavea.helpers.Logger;
@@ -40,6 +41,9 @@ public class RestClient {
     private static final int TIMEOUT_IN_MILLIS = 4000;  // 4 seconds
     private static final int TIMEOUT_BETWEEN_RETRIES = 1500;  // 1.5 seconds
 
+    // About how much smaller a photo is as a JPEG than as a bitmap
+    private static final int JPEG_COMPRESSION_RATIO = 10;
+
     private final String apiUrl;
 
     private final String baseUrl;
@@ -244,6 +248,20 @@ public class RestClient {
                                        String username, String password,
                                        JsonHttpResponseHandler responseHandler, int timeout) {
 
+        // We need to coerce the bitmap into a ByteArrayEntity so that we can
+        // post it.  The stream is sized so it rarely has to grow, and its buffer
+        // is signed and posted as it is, rather than copied.
+        PhotoOutputStream bos = new PhotoOutputStream(bm.getByteCount() / JPEG_COMPRESSION_RATIO);
+        bm.compress(CompressFormat.JPEG, 55, bos);
+        postWithAuthentication(url, bos.getBuffer(), bos.size(), username, password,
+                responseHandler, timeout);
+    }
+
+    // Posts the first length bytes of an already encoded JPEG image
+    public void postWithAuthentication(String url, byte[] jpeg, int length,
+                                       String username, String password,
+                                       JsonHttpResponseHandler responseHandler, int timeout) {
+
         String completeUrl = getAbsoluteUrl(url);
         completeUrl = prepareUrl(completeUrl);
 
@@ -251,12 +269,7 @@ public class RestClient {
         // call, which is why I haven't exposed it as a parameter.
         String contentType = "image/jpeg";
 
-        // We need to coerce the bitmap into a ByteArrayEntity so that we can
-        // post it.
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        bm.compress(CompressFormat.JPEG, 55, bos);
-        byte[] bitmapdata = bos.toByteArray();
-        ByteArrayEntity bae = new ByteArrayEntity(bitmapdata);
+        ByteArrayEntity bae = new ByteArrayEntity(jpeg, 0, length);
 
         // No signature for http client which takes a BitmapEntity and a headers
         // array, so creating a one-off client for this purpose
@@ -266,7 +279,7 @@ public class RestClient {
         // Add the signature based on the base64 encoded representation of the bitmap
         Header sig;
         try {
-            sig = reqSigner.getSignatureHeader("POST", completeUrl, bitmapdata);
+            sig = reqSigner.getSignatureHeader("POST", completeUrl, jpeg, length);
         } catch (URISyntaxException | SignatureException e) {
             Logger.error("Error creating signature on POST");
             return;
@@ -295,11 +308,11 @@ public class RestClient {
         client.delete(context, completeUrl, headers, responseHandler);
     }
 
-    public void getImage(String imageUrl, BinaryHttpResponseHandler handler) {
+    public RequestHandle getImage(String imageUrl, BinaryHttpResponseHandler handler) {
         if (imageUrl.startsWith("/")) {
             imageUrl = safePathJoin(baseUrl, imageUrl);
         }
-        client.get(imageUrl, handler);
+        return client.get(imageUrl, handler);
     }
 
     private RequestParams prepareParams(RequestParams params) {
@@ -433,4 +446,17 @@ public class RestClient {
     private String getAppVersion() {
         return prefs.getString("platform_ver_build", "");
     }
+
+    /**
+     * Gives access to the written bytes without copying them
+     */
+    private static class PhotoOutputStream extends ByteArrayOutputStream {
+        PhotoOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
 }
@@ -1,11 +1,17 @@
 package org.azavea.otm.ui;
 
 import android.app.Activity;
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
+import android.support.annotation.StringRes;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 
@@ -15,11 +21,13 @@ import org.azavea.otm.R;
 import org.azavea.otm.data.Species;
 import org.azavea.otm.fields.Field;
 import org.azavea.otm.filters.BaseFilter;
+import org.azavea.otm.filters.FilterPreset;
 import org.azavea.otm.filters.SpeciesFilter;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.google.common.collect.Maps.newHashMap;
@@ -36,15 +44,87 @@ public class FilterDisplay extends UpEnabledActionBarActivity {
         createFilterUI(App.getFilterManager().getFilters(), filter_list);
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.filter_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.filter_presets) {
+            choosePreset(R.string.filter_presets, this::applyPreset);
+            return true;
+        } else if (id == R.id.filter_preset_save) {
+            savePreset();
+            return true;
+        } else if (id == R.id.filter_preset_delete) {
+            choosePreset(R.string.filter_preset_delete,
+                    preset -> App.getFilterManager().deletePreset(preset.name));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     public void onComplete(View view) {
+        updateFiltersFromViews();
+        setResult(RESULT_OK);
+        finish();
+    }
+
+    private void updateFiltersFromViews() {
         // Update any active filters from the view
         for (Map.Entry<BaseFilter, View> filterView : filterViews.entrySet()) {
             filterView.getKey().updateFromView(filterView.getValue());
         }
+        App.getFilterManager().onFiltersEdited();
+    }
+
+    private void savePreset() {
+        final EditText name = new EditText(this);
+        name.setHint(R.string.filter_preset_name_hint);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.filter_preset_save)
+                .setView(name)
+                .setNegativeButton(android.R.string.cancel, null)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    String presetName = name.getText().toString().trim();
+                    if (!TextUtils.isEmpty(presetName)) {
+                        App.getFilterManager().savePreset(presetName, filterViews);
+                        Toast.makeText(this, getString(R.string.filter_preset_saved, presetName),
+                                Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .show();
+    }
+
+    private void choosePreset(@StringRes int title, PresetChoice onChoice) {
+        final List<FilterPreset> presets = App.getFilterManager().getPresets();
+        if (presets.isEmpty()) {
+            Toast.makeText(this, R.string.filter_presets_empty, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        CharSequence[] names = new CharSequence[presets.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = presets.get(i).name;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setItems(names, (dialog, which) -> onChoice.chosen(presets.get(which)))
+                .show();
+    }
+
+    private void applyPreset(FilterPreset preset) {
+        App.getFilterManager().applyPreset(preset);
         setResult(RESULT_OK);
         finish();
     }
 
+    private interface PresetChoice {
+        void chosen(FilterPreset preset);
+    }
+
     public void onClear(View clearButton) {
         resetFilters();
     }
@@ -15,16 +15,18 @@ import com.google.common.base.Function;
 import org.azavea.otm.R;
 import org.azavea.otm.adapters.LinkedHashMapAdapter;
 import org.azavea.otm.data.Model;
+import org.azavea.otm.data.SectionIndex;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 
 import static org.azavea.otm.adapters.LinkedHashMapAdapter.Entry;
 
 public abstract class FilterableListDisplay<T extends Model> extends ListActivity {
 
+    private LinkedHashMapAdapter<T> adapter = null;
+
     /**
      * @return The Resource id of the hint text to show in the filter textbox
      */
@@ -46,10 +48,19 @@ public abstract class FilterableListDisplay<T extends Model> extends ListActivit
     }
 
     public void renderList(LinkedHashMapAdapter<T> adapter) {
+        this.adapter = adapter;
         setListAdapter(adapter);
         setupFiltering(adapter);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (adapter != null) {
+            adapter.cancelFiltering();
+        }
+    }
+
     private void setupFiltering(final LinkedHashMapAdapter<T> adapter) {
         EditText filterEditText = (EditText) findViewById(R.id.filter_text);
         setKeyboardChangeEvents(adapter, filterEditText);
@@ -70,8 +81,8 @@ public abstract class FilterableListDisplay<T extends Model> extends ListActivit
 
             @Override
             public void afterTextChanged(Editable s) {
-                adapter.getFilter().filter(s);
-                adapter.notifyDataSetChanged();
+                // The adapter publishes the results itself, once they're ready
+                adapter.filter(s);
             }
 
             @Override
@@ -109,28 +120,19 @@ public abstract class FilterableListDisplay<T extends Model> extends ListActivit
         finish();
     }
 
+    /**
+     * Sort items by key, and section them by the first letter of their key, following the
+     * sorting rules of the device locale
+     */
     public LinkedHashMap<CharSequence, List<T>> groupListByKeyFirstLetter(T[] list, Function<T, String> getKey) {
         if (getKey == null) {
             throw new IllegalArgumentException("getKey cannot be null");
         }
 
-        //noinspection ConstantConditions
-        Arrays.sort(list, (a, b) -> getKey.apply(a).compareToIgnoreCase(getKey.apply(b)));
-
-        LinkedHashMap<CharSequence, List<T>> itemSections = new LinkedHashMap<>(26);
-        for (char c = 'A'; c <= 'Z'; c++) {
-            itemSections.put(Character.toString(c), new ArrayList<>());
-        }
-        for (T item : list) {
-            //noinspection ConstantConditions
-            char firstChar = getKey.apply(item).toUpperCase().trim().charAt(0);
-            if (firstChar < 'A' || firstChar > 'Z') {
-                firstChar = 'A';
-            }
-            String key = Character.toString(firstChar);
-            List<T> section = itemSections.get(key);
-            section.add(item);
+        String[] keys = new String[list.length];
+        for (int i = 0; i < list.length; i++) {
+            keys[i] = getKey.apply(list[i]);
         }
-        return itemSections;
+        return SectionIndex.build(keys, Locale.getDefault()).group(list);
     }
 }
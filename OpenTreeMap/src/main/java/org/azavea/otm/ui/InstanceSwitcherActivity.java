@@ -3,11 +3,8 @@ package org.azavea.otm.ui;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.ProgressDialog;
-import android.content.Context;
 import android.content.Intent;
-import android.location.Criteria;
 import android.location.Location;
-import android.location.LocationManager;
 import android.os.Bundle;
 import android.os.Handler.Callback;
 import android.os.Message;
@@ -32,7 +29,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 
@@ -46,8 +42,6 @@ public class InstanceSwitcherActivity extends Activity {
     private User user = null;
     private Location userLocation;
 
-    LocationManager locationManager;
-
     private ProgressDialog loadingInstances;
     private ProgressDialog loadingInstance;
 
@@ -65,8 +59,6 @@ public class InstanceSwitcherActivity extends Activity {
                 startActivityForResult(
                         new Intent(InstanceSwitcherActivity.this, PublicInstanceListDisplay.class),
                         INSTANCE_SELECT_REQUEST_CODE));
-
-        locationManager = (LocationManager) App.getAppInstance().getSystemService(Context.LOCATION_SERVICE);
     }
 
     @Override
@@ -102,38 +94,12 @@ public class InstanceSwitcherActivity extends Activity {
         }
     }
 
-    // TODO: backport this algorithm, it's more fault tolerant
-    private Location getBestLocation(Criteria accuracyCrit) {
-        Location location = null;
-
-        if (locationManager != null) {
-            final String bestProvider = locationManager.getBestProvider(accuracyCrit, true);
-            List<String> providers = locationManager.getProviders(accuracyCrit, true);
-
-            if (bestProvider != null) {
-                Collections.sort(providers, (s1, s2) -> s1.equals(bestProvider) ? 1 :
-                        s2.equals(bestProvider) ? -1 : 0);
-            }
-
-            for (String provider : providers) {
-                location = locationManager.getLastKnownLocation(provider);
-                if (location != null) {
-                    break;
-                }
-            }
-        }
-
-        return location;
-    }
-
     @Override
     public void onStart() {
         super.onStart();
 
         // Only setup instance lists if the logged in user has changed or moved from their location
-        final Criteria criteria = new Criteria();
-        criteria.setAccuracy(Criteria.ACCURACY_COARSE);
-        final Location newLocation = getBestLocation(criteria);
+        final Location newLocation = App.getLocationService().getLastLocation();
         final User newUser = App.getLoginManager().loggedInUser;
 
         if (user != newUser || areLocationsDistant(userLocation, newLocation)) {
@@ -7,7 +7,7 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.AbsListView;
 import android.widget.ListView;
 
 import com.joelapenna.foursquared.widget.SegmentedButton;
@@ -19,16 +19,25 @@ import org.azavea.lists.data.DisplayableModel;
 import org.azavea.lists.data.DisplayablePlot;
 import org.azavea.otm.App;
 import org.azavea.otm.R;
+import org.azavea.otm.adapters.NearbyPlotAdapter;
 import org.azavea.otm.data.Plot;
 import org.azavea.otm.data.User;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 
 public class ListDisplay extends Fragment implements ListObserver {
+    // How close to either end of the list to start showing more trees
+    private static final int LOAD_MORE_ROWS = 5;
+
+    // How many rows past the visible ones to fetch thumbnails for
+    private static final int PREFETCH_ROWS = 10;
+
     private ListView listView;
     private InfoList infoList;
     private ProgressDialog dialog;
-    private ArrayAdapter<DisplayableModel> adapter;
+    private NearbyPlotAdapter adapter;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -66,6 +75,8 @@ public class ListDisplay extends Fragment implements ListObserver {
     public void onPause() {
         super.onPause();
         infoList.removeLocationUpdating();
+        // Only the thumbnails of the rows on screen are still wanted
+        App.getImageLoader().prefetch(Collections.emptyList(), 0);
     }
 
     @Override
@@ -80,6 +91,7 @@ public class ListDisplay extends Fragment implements ListObserver {
         infoList.addObserver(this);
         infoList.setupLocationUpdating(getActivity().getApplicationContext());
         listView.setOnItemClickListener(getOnClickListener());
+        listView.setOnScrollListener(getOnScrollListener());
 
         processRadioButtonSelection(0);
 
@@ -125,15 +137,78 @@ public class ListDisplay extends Fragment implements ListObserver {
         };
     }
 
+    /**
+     * Load more trees when the user gets near either end of the list, and fetch the thumbnails of
+     * the rows which are about to be shown
+     */
+    private AbsListView.OnScrollListener getOnScrollListener() {
+        return new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (totalItemCount > 0 && firstVisibleItem + visibleItemCount >= totalItemCount - LOAD_MORE_ROWS) {
+                    infoList.loadMore();
+                }
+                if (totalItemCount > 0 && firstVisibleItem <= LOAD_MORE_ROWS) {
+                    infoList.loadPrevious();
+                }
+                prefetchThumbnails(firstVisibleItem, visibleItemCount);
+            }
+        };
+    }
+
+    private void prefetchThumbnails(int firstVisibleItem, int visibleItemCount) {
+        if (adapter != null) {
+            int last = firstVisibleItem + visibleItemCount - 1 + PREFETCH_ROWS;
+            App.getImageLoader().prefetch(adapter.getPlots(firstVisibleItem, last), adapter.getThumbnailSize());
+        }
+    }
+
+    /**
+     * Rows are rebuilt when their distance changes, so they're matched by plot
+     */
+    private static int getPositionOfPlot(DisplayableModel[] rows, DisplayableModel row) {
+        if (row instanceof DisplayablePlot) {
+            Plot plot = ((DisplayablePlot) row).getPlot();
+            for (int i = 0; i < rows.length; i++) {
+                if (((DisplayablePlot) rows[i]).getPlot() == plot) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
     @Override
     public void update() {
         if (getActivity() != null) {
-            adapter = new ArrayAdapter<>(getActivity(), R.layout.simple_list_item, android.R.id.text1,
-                    infoList.getDisplayValues());
-
-            listView.setAdapter(adapter);
-
-            adapter.notifyDataSetChanged();
+            DisplayableModel[] values = infoList.getDisplayValues();
+            if (adapter == null || listView.getAdapter() != adapter) {
+                adapter = new NearbyPlotAdapter(getActivity(), new ArrayList<>(Arrays.asList(values)),
+                        App.getImageLoader());
+                listView.setAdapter(adapter);
+            } else {
+                // Swapping the rows of the existing adapter keeps the list's scroll position.
+                // Rows may have been dropped from the top, so keep the first visible row in place.
+                int first = listView.getFirstVisiblePosition();
+                DisplayableModel firstRow = first < adapter.getCount() ? adapter.getItem(first) : null;
+                View firstView = listView.getChildAt(0);
+                int top = firstView == null ? 0 : firstView.getTop();
+
+                adapter.setNotifyOnChange(false);
+                adapter.clear();
+                adapter.addAll(values);
+                adapter.notifyDataSetChanged();
+
+                int position = getPositionOfPlot(values, firstRow);
+                if (position >= 0 && position != first) {
+                    listView.setSelectionFromTop(position, top);
+                }
+            }
+            prefetchThumbnails(listView.getFirstVisiblePosition(), listView.getChildCount());
 
             dialog.hide();
         }
@@ -1,13 +1,14 @@
 package org.azavea.otm.ui;
 
 import android.app.Activity;
+import android.app.AlertDialog;
 import android.app.Fragment;
 import android.app.ProgressDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.graphics.BitmapFactory;
 import android.location.Geocoder;
 import android.location.Location;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
@@ -25,34 +26,36 @@ import android.widget.SearchView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.atlassian.fugue.Either;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.MapsInitializer;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileOverlayOptions;
 import com.joelapenna.foursquared.widget.SegmentedButton;
-import com.loopj.android.http.BinaryHttpResponseHandler;
 import com.loopj.android.http.JsonHttpResponseHandler;
 
 import org.azavea.helpers.GoogleMapsListeners;
 import org.azavea.helpers.Logger;
 import org.azavea.map.FilterableTMSTileProvider;
 import org.azavea.map.TMSTileProvider;
+import org.azavea.map.TileCacheWarmer;
 import org.azavea.otm.App;
 import org.azavea.otm.R;
 import org.azavea.otm.data.Geometry;
 import org.azavea.otm.data.InstanceInfo;
 import org.azavea.otm.data.Plot;
 import org.azavea.otm.data.PlotContainer;
+import org.azavea.otm.filters.ActiveFilters;
+import org.azavea.otm.filters.FilterPreset;
+import org.azavea.otm.filters.LocalFilterEvaluator;
+import org.azavea.otm.filters.PlotRecords;
+import org.azavea.otm.location.LocationService;
 import org.azavea.otm.map.FallbackGeocoder;
 import org.azavea.otm.rest.RequestGenerator;
 import org.azavea.otm.rest.handlers.ContainerRestHandler;
@@ -62,24 +65,28 @@ import org.jdeferred.DeferredManager;
 import org.jdeferred.Promise;
 import org.jdeferred.android.AndroidDeferredManager;
 import org.jdeferred.impl.DeferredObject;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeoutException;
 
 import cz.msebera.android.httpclient.Header;
 
-public class MainMapFragment extends Fragment implements GoogleApiClient.ConnectionCallbacks {
+public class MainMapFragment extends Fragment {
     private static final int STREET_ZOOM_LEVEL = 17;
     private static final int FILTER_INTENT = 1;
     private static final int INFO_INTENT = 2;
     private static final int ADD_INTENT = 3;
 
+    private static final int INITIAL_LOCATION_WAIT = 5000;  // 5 seconds
+    private static final LocationService.Request INITIAL_LOCATION_REQUEST =
+            new LocationService.Request(LocationService.Accuracy.HIGH, 1000, 0, 0);
+
     // modes for the add tree marker feature
     private static final int STEP1 = 1;
     private static final int STEP2 = 2;
@@ -97,7 +104,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
     private MapView mapView;
     private TextView filterDisplay;
     private int treeAddMode = CANCEL;
-    private GoogleApiClient mGoogleApiClient;
+    private final LocationService.Listener mLocationListener = this::onInitialLocation;
 
     private Deferred<Location, Throwable, Void> mLocationDeferred;
 
@@ -107,6 +114,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
     private Promise<InstanceInfo, Throwable, Void> mInstanceLoadPromise;
 
     FilterableTMSTileProvider filterTileProvider;
+    TileCacheWarmer tileCacheWarmer;
     TMSTileProvider boundaryTileProvider;
     TMSTileProvider canopyTileProvider;
     TileOverlay filterTileOverlay;
@@ -193,13 +201,6 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
         final ProgressDialog dialog = ProgressDialog.show(getActivity(), "",
                 "Loading Map Info...", true);
 
-        if (mGoogleApiClient == null) {
-            mGoogleApiClient = new GoogleApiClient.Builder(this.getActivity())
-                    .addApi(LocationServices.API)
-                    .addConnectionCallbacks(this)
-                    .build();
-        }
-
         App.getAppInstance().ensureInstanceLoaded(result -> {
             if (result != null && result.getData().getBoolean("success")) {
                 instanceLoadDeferred.resolve(App.getCurrentInstance());
@@ -283,8 +284,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
         // a done handler gets called every time .done is called thereafter.
         mMapSetupDeferred.promise().done(map -> map.setMyLocationEnabled(true));
 
-        // Should result in onConnect being called.
-        mGoogleApiClient.connect();
+        requestInitialLocation();
     }
 
     // Usually called after onStart. Means the fragment got the focus.
@@ -305,7 +305,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
         });
 
         mapView.onStop();
-        mGoogleApiClient.disconnect();
+        App.getLocationService().unsubscribe(mLocationListener);
     }
 
     @Override
@@ -317,11 +317,14 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
             switch (requestCode) {
                 case FILTER_INTENT:
                     if (resultCode == Activity.RESULT_OK) {
-                        Collection<Either<JSONObject, JSONArray>> activeFilters = App.getFilterManager().getActiveFilters();
-                        setFilterDisplay(App.getFilterManager().getActiveFilterDisplay());
+                        ActiveFilters activeFilters = App.getFilterManager().getActiveFilterSnapshot();
+                        setFilterDisplay(activeFilters.display);
 
-                        filterTileProvider.setParameters(activeFilters);
-                        reloadTiles(map);
+                        // Only reload the tiles if the filters actually changed
+                        if (filterTileProvider.setFilters(activeFilters)) {
+                            reloadTiles(map);
+                            showLocalMatches(activeFilters, map);
+                        }
                     }
                     break;
                 case INFO_INTENT:
@@ -364,6 +367,9 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
     @Override
     public void onPause() {
         super.onPause();
+        if (tileCacheWarmer != null) {
+            tileCacheWarmer.cancel();
+        }
         if (mapView != null) {
             mapView.onPause();
         }
@@ -378,34 +384,26 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
     }
 
     /**
-     * ***************************************************************
-     * Overrides for the GoogleApiClient.ConnectionCallbacks interface
-     * ***************************************************************
+     * Ask for a single accurate fix, to center the map on the user
      */
-    @Override
-    public void onConnected(Bundle bundle) {
-        int WAIT_DURATION = 5000;  // 5 seconds
-        LocationRequest request = LocationRequest.create()
-                .setNumUpdates(1)
-                .setExpirationDuration(WAIT_DURATION)
-                .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
-
-        LocationServices.FusedLocationApi
-                .requestLocationUpdates(mGoogleApiClient, request, loc -> {
-                    if (mLocationDeferred.isPending()) {
-                        mLocationDeferred.resolve(loc);
-                    }
-                });
+    private void requestInitialLocation() {
+        if (!mLocationDeferred.isPending()) {
+            return;
+        }
+        App.getLocationService().subscribe(INITIAL_LOCATION_REQUEST, mLocationListener);
         new Handler().postDelayed(() -> {
             if (mLocationDeferred.isPending()) {
+                App.getLocationService().unsubscribe(mLocationListener);
                 mLocationDeferred.reject(new TimeoutException("Location request timed out"));
             }
-        }, WAIT_DURATION);
+        }, INITIAL_LOCATION_WAIT);
     }
 
-    @Override
-    public void onConnectionSuspended(int i) {
-        // Implement the interface
+    private void onInitialLocation(Location location) {
+        App.getLocationService().unsubscribe(mLocationListener);
+        if (mLocationDeferred.isPending()) {
+            mLocationDeferred.resolve(location);
+        }
     }
 
     /*********************************
@@ -450,6 +448,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
                         try {
                             Plot plot = response.getFirst();
                             if (plot != null) {
+                                App.getFilterManager().getPlotCache().put(plot);
                                 Log.d("TREE_CLICK", "plot: " + plot.getTitle());
                                 showPopup(plot, map);
                             } else {
@@ -466,6 +465,89 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
         );
     }
 
+    /**
+     * List the loaded plots which match the filters, to give some feedback while the filtered
+     * tiles are loading.  Choosing one of them shows it on the map.
+     * <p>
+     * Cached plots are shared with the rest of the app, and their JSON can't be read safely off
+     * the UI thread, so it is serialized here and the background task works on its own copies.
+     */
+    private void showLocalMatches(final ActiveFilters activeFilters, final GoogleMap map) {
+        if (activeFilters.isEmpty()) {
+            return;
+        }
+        List<Plot> cached = App.getFilterManager().getPlotCache().snapshot();
+        if (cached.isEmpty()) {
+            return;
+        }
+        final List<String> plotData = new ArrayList<>(cached.size());
+        for (Plot plot : cached) {
+            plotData.add(plot.getData().toString());
+        }
+        final String speciesMissing = getString(R.string.species_missing);
+        new AsyncTask<Void, Void, LocalFilterEvaluator.Result>() {
+            private String[] titles;
+
+            @Override
+            protected LocalFilterEvaluator.Result doInBackground(Void... params) {
+                List<Plot> plots = new ArrayList<>(plotData.size());
+                for (String data : plotData) {
+                    try {
+                        plots.add(new Plot(new JSONObject(data)));
+                    } catch (JSONException e) {
+                        Log.w(App.LOG_TAG, "Could not copy cached plot", e);
+                    }
+                }
+                LocalFilterEvaluator.Result result =
+                        new LocalFilterEvaluator(activeFilters).evaluate(new PlotRecords(plots));
+                titles = new String[result.matches.size()];
+                for (int i = 0; i < titles.length; i++) {
+                    try {
+                        titles[i] = result.matches.get(i).getTitle();
+                    } catch (JSONException e) {
+                        titles[i] = null;
+                    }
+                    if (TextUtils.isEmpty(titles[i])) {
+                        titles[i] = speciesMissing;
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            protected void onPostExecute(final LocalFilterEvaluator.Result result) {
+                // The filters may have changed again while the plots were being evaluated
+                if (!isAdded() || filterTileProvider.getFilters() != activeFilters) {
+                    return;
+                }
+                int message = result.exact ? R.string.filter_local_matches : R.string.filter_local_matches_at_least;
+                String title = getString(message, result.matches.size(), result.total);
+                if (result.matches.isEmpty()) {
+                    Toast.makeText(getActivity(), title, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                new AlertDialog.Builder(getActivity())
+                        .setTitle(title)
+                        .setItems(titles, (dialog, which) -> showPopup(result.matches.get(which), map))
+                        .setNegativeButton(android.R.string.cancel, null)
+                        .show();
+            }
+        }.execute();
+    }
+
+    /**
+     * Load the tiles of the saved filter presets for the visible area, so switching to one of
+     * them is instant
+     */
+    private void warmPresetTiles(GoogleMap map) {
+        List<FilterPreset> presets = App.getFilterManager().getPresets();
+        if (presets.isEmpty() || !isAdded() || !TileCacheWarmer.isOnWifi(getActivity())) {
+            return;
+        }
+        LatLngBounds bounds = map.getProjection().getVisibleRegion().latLngBounds;
+        tileCacheWarmer.warm(bounds, (int) map.getCameraPosition().zoom, presets);
+    }
+
     private boolean setupTileProviders(Deferred<GoogleMap, Throwable, Void> mapDeferred) {
         final SharedPreferences prefs = App.getSharedPreferences();
         final String baseTileUrl = prefs.getString("tiler_url", null);
@@ -477,6 +559,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
             canopyTileProvider = new TMSTileProvider(baseTileUrl, plotFeature);
             if (filterTileProvider == null) {
                 filterTileProvider = new FilterableTMSTileProvider(baseTileUrl, plotFeature);
+                tileCacheWarmer = new TileCacheWarmer(filterTileProvider);
             }
         } catch (MalformedURLException e) {
             e.printStackTrace();
@@ -535,6 +618,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
         map.setOnMapClickListener(point -> {
             showPopupOnMap(point, map);
         });
+        map.setOnCameraIdleListener(() -> warmPresetTiles(map));
         SegmentedButton buttons = (SegmentedButton) view.findViewById(R.id.basemap_controls);
 
         MapHelper.setUpBasemapControls(buttons, map);
@@ -588,7 +672,7 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
     private void setupViewHandlers(View view, GoogleMap map) {
         view.findViewById(R.id.plotImage).setOnClickListener(v -> {
             if (currentPlot != null) {
-                currentPlot.getTreePhoto(MapHelper.getPhotoDetailHandler(getActivity(), currentPlot));
+                MapHelper.showPhotoDetail(getActivity(), currentPlot);
             }
         });
 
@@ -671,19 +755,13 @@ public class MainMapFragment extends Fragment implements GoogleApiClient.Connect
     }
 
     private void showImageOnPlotPopup(Plot plot) {
-        plot.getTreeThumbnail(new BinaryHttpResponseHandler(Plot.IMAGE_TYPES) {
-            @Override
-            public void onSuccess(int statusCode, Header[] headers, byte[] imageData) {
-                ImageView plotImage = (ImageView) getActivity().findViewById(R.id.plotImage);
-                plotImage.setImageBitmap(BitmapFactory.decodeByteArray(imageData, 0, imageData.length));
-            }
-
-            @Override
-            public void onFailure(int statusCode, Header[] headers, byte[] imageData, Throwable e) {
-                // Log the error, but not important enough to bother the user
-                Logger.warning("Could not retreive tree image", e);
-            }
-        });
+        String url = plot.getThumbnailUrl();
+        if (url != null) {
+            App.getImageLoader().load(url, plotImageView);
+        } else {
+            // Don't show the thumbnail of a plot tapped earlier
+            App.getImageLoader().cancel(plotImageView);
+        }
     }
 
     private void setFilterDisplay(String activeFilterDisplay) {
@@ -4,8 +4,8 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.Intent;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
+import android.util.DisplayMetrics;
 import android.widget.ImageView;
 import android.widget.Toast;
 
@@ -13,7 +13,6 @@ import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
 import com.google.android.gms.maps.GoogleMap;
 import com.joelapenna.foursquared.widget.SegmentedButton;
-import com.loopj.android.http.BinaryHttpResponseHandler;
 
 import org.azavea.helpers.Logger;
 import org.azavea.otm.App;
@@ -21,8 +20,6 @@ import org.azavea.otm.R;
 import org.azavea.otm.data.Plot;
 import org.json.JSONException;
 
-import cz.msebera.android.httpclient.Header;
-
 public class MapHelper {
 
     public static void setUpBasemapControls(SegmentedButton buttons, GoogleMap mMap) {
@@ -46,49 +43,56 @@ public class MapHelper {
         }
     }
 
-    protected static BinaryHttpResponseHandler getPhotoDetailHandler(final Activity activity, final Plot plot) {
-        return new BinaryHttpResponseHandler(Plot.IMAGE_TYPES) {
-            @Override
-            public void onSuccess(int statusCode, Header[] headers, byte[] imageData) {
-                ImageView imageView = new ImageView(activity);
-                imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
-                imageView.setImageBitmap(BitmapFactory.decodeByteArray(imageData, 0, imageData.length));
-
-                new AlertDialog.Builder(activity)
-                    .setNeutralButton(R.string.photo_report_close, ((dialog, which) -> {
-                        dialog.dismiss();
-                    }))
-                    .setNegativeButton(R.string.photo_report_action, ((dialog, which) -> {
-                        String body = "";
-                        try {
-                            body = String.format(activity.getString(R.string.photo_report_body),
-                                    App.getCurrentInstance().getInstanceId(), plot.getId(),
-                                    plot.getMostRecentPhoto().optInt("id"));
-                        } catch (JSONException e) {
-                            Logger.error("Could not get plot id in photo report", e);
-                        }
+    /**
+     * Show the plot's most recent photo in a dialog, sampled down to the size of the screen
+     */
+    protected static void showPhotoDetail(final Activity activity, final Plot plot) {
+        String url = plot.getPhotoUrl();
+        if (url == null) {
+            return;
+        }
+        DisplayMetrics metrics = activity.getResources().getDisplayMetrics();
+        int targetSize = Math.min(metrics.widthPixels, metrics.heightPixels);
+        App.getImageLoader().load(url, targetSize, bitmap -> {
+            if (bitmap == null) {
+                Toast.makeText(activity.getApplicationContext(), "Could not retrieve full image", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (activity.isFinishing()) {
+                return;
+            }
+            ImageView imageView = new ImageView(activity);
+            imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
+            imageView.setImageBitmap(bitmap);
 
-                        Intent intent = new Intent(Intent.ACTION_SENDTO);
-                        intent.setData(Uri.parse("mailto:")); // only email apps should handle this
-                        intent.putExtra(Intent.EXTRA_EMAIL, new String[] {activity.getString(R.string.photo_report_email)});
-                        intent.putExtra(Intent.EXTRA_SUBJECT, activity.getString(R.string.report_photo_subject));
-                        intent.putExtra(Intent.EXTRA_TEXT, body);
+            new AlertDialog.Builder(activity)
+                .setNeutralButton(R.string.photo_report_close, ((dialog, which) -> {
+                    dialog.dismiss();
+                }))
+                .setNegativeButton(R.string.photo_report_action, ((dialog, which) -> {
+                    String body = "";
+                    try {
+                        body = String.format(activity.getString(R.string.photo_report_body),
+                                App.getCurrentInstance().getInstanceId(), plot.getId(),
+                                plot.getMostRecentPhoto().getId());
+                    } catch (JSONException e) {
+                        Logger.error("Could not get plot id in photo report", e);
+                    }
 
-                        if (intent.resolveActivity(activity.getPackageManager()) != null) {
-                            activity.startActivity(intent);
-                        } else {
-                            Toast.makeText(activity, R.string.photo_report_failure, Toast.LENGTH_LONG).show();
-                        }
-                    }))
-                    .setView(imageView)
-                    .show();
-            }
+                    Intent intent = new Intent(Intent.ACTION_SENDTO);
+                    intent.setData(Uri.parse("mailto:")); // only email apps should handle this
+                    intent.putExtra(Intent.EXTRA_EMAIL, new String[] {activity.getString(R.string.photo_report_email)});
+                    intent.putExtra(Intent.EXTRA_SUBJECT, activity.getString(R.string.report_photo_subject));
+                    intent.putExtra(Intent.EXTRA_TEXT, body);
 
-            @Override
-            public void onFailure(int statusCode, Header[] headers, byte[] imageData, Throwable e) {
-                Logger.error("Could not retreive tree image", e);
-                Toast.makeText(activity.getApplicationContext(), "Could not retrieve full image", Toast.LENGTH_SHORT).show();
-            }
-        };
+                    if (intent.resolveActivity(activity.getPackageManager()) != null) {
+                        activity.startActivity(intent);
+                    } else {
+                        Toast.makeText(activity, R.string.photo_report_failure, Toast.LENGTH_LONG).show();
+                    }
+                }))
+                .setView(imageView)
+                .show();
+        });
     }
 }
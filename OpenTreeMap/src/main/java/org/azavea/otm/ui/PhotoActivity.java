@@ -4,8 +4,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
 import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Environment;
@@ -15,6 +13,7 @@ import android.widget.Toast;
 
 import org.azavea.helpers.Logger;
 import org.azavea.otm.App;
+import org.azavea.otm.images.PhotoDecoder;
 
 import java.io.File;
 import java.io.IOException;
@@ -50,22 +49,26 @@ public class PhotoActivity {
         return image;
     }
 
+    /**
+     * The photo from the camera, scaled down and upright.  It can be returned to
+     * {@link App#getBitmapPool()} once it has been uploaded.
+     */
     public static Bitmap getCorrectedCameraBitmap(String filePath) {
         // Add the original file to the device's gallery
         galleryAddPic(filePath);
 
         // Scale and re-orient the image, save to server
-        Bitmap bm = getScaledImage(filePath);
-        return rotateImage(App.getAppInstance(), bm, Uri.parse(filePath));
+        float rotation = rotationForImage(App.getAppInstance(), Uri.parse(filePath));
+        return decodePhoto(filePath, (int) rotation);
     }
 
     public static Bitmap getCorrectedGalleryBitmap(Intent data) {
         Uri selectedImage = data.getData();
-        Bitmap bm = retrieveBitmapFromGallery(selectedImage);
-        return rotateImage(App.getAppInstance(), bm, selectedImage);
+        float rotation = rotationForImage(App.getAppInstance(), selectedImage);
+        return decodePhoto(getGalleryFilePath(selectedImage), (int) rotation);
     }
 
-    protected static Bitmap retrieveBitmapFromGallery(Uri selectedImage) {
+    protected static String getGalleryFilePath(Uri selectedImage) {
         String[] filePathColumn = {MediaStore.Images.Media.DATA};
 
         Cursor cursor = App.getAppInstance().getContentResolver().query(
@@ -76,7 +79,7 @@ public class PhotoActivity {
         String filePath = cursor.getString(columnIndex);
 
         cursor.close();
-        return getScaledImage(filePath);
+        return filePath;
     }
 
     private static void galleryAddPic(String filePath) {
@@ -87,35 +90,11 @@ public class PhotoActivity {
         App.getAppInstance().sendBroadcast(mediaScanIntent);
     }
 
-    private static Bitmap getScaledImage(String filePath) {
-        // Get the dimensions of the bitmap
-        BitmapFactory.Options bmOptions = new BitmapFactory.Options();
-        bmOptions.inJustDecodeBounds = true;
-        BitmapFactory.decodeFile(filePath, bmOptions);
-        int photoW = bmOptions.outWidth;
-        int photoH = bmOptions.outHeight;
-
-        // Determine how much to scale down the image
-        int scaleFactor = (int) Math.ceil(Math.min(photoW / PHOTO_WIDTH, photoH / PHOTO_HEIGHT));
-
-        // Decode the image file into a Bitmap sized to fill the View
-        bmOptions.inJustDecodeBounds = false;
-        bmOptions.inSampleSize = scaleFactor;
-        bmOptions.inPurgeable = true;
-
-        return BitmapFactory.decodeFile(filePath, bmOptions);
-    }
-
-    private static Bitmap rotateImage(Context context, Bitmap sourceBitmap, Uri uri) {
-        Matrix matrix = new Matrix();
-        float rotation = rotationForImage(context, uri);
-        if (rotation != 0f) {
-            matrix.preRotate(rotation);
+    private static Bitmap decodePhoto(String filePath, int rotation) {
+        if (filePath == null) {
+            return null;
         }
-        Bitmap resizedBitmap = Bitmap.createBitmap(
-                sourceBitmap, 0, 0, sourceBitmap.getWidth(), sourceBitmap.getHeight(), matrix, true);
-
-        return resizedBitmap;
+        return new PhotoDecoder(App.getBitmapPool()).decode(filePath, rotation, PHOTO_WIDTH, PHOTO_HEIGHT);
     }
 
     private static float rotationForImage(Context context, Uri uri) {
@@ -8,14 +8,22 @@ import org.azavea.otm.App;
 import org.azavea.otm.R;
 import org.azavea.otm.FilterManager;
 import org.azavea.otm.adapters.SpeciesAdapter;
+import org.azavea.otm.adapters.LinkedHashMapAdapter.Entry;
 import org.azavea.otm.data.Species;
+import org.azavea.otm.data.SpeciesCatalog;
+import org.azavea.otm.data.SpeciesUsage;
 import org.azavea.otm.fields.Field;
 
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
+import android.widget.ListView;
 import android.widget.Toast;
 
 public class SpeciesListDisplay extends FilterableListDisplay<Species> {
+    private SpeciesUsage usage;
+
     @Override
     protected int getFilterHintTextId() {
         return R.string.filter_species_hint;
@@ -30,6 +38,8 @@ public class SpeciesListDisplay extends FilterableListDisplay<Species> {
     public void onCreate(Bundle data) {
         super.onCreate(data);
 
+        usage = new SpeciesUsage(this, App.getCurrentInstance().getInstanceId());
+
         FilterManager search = App.getFilterManager();
 
         if (search.getSpecies().size() > 0) {
@@ -48,18 +58,47 @@ public class SpeciesListDisplay extends FilterableListDisplay<Species> {
     }
 
     private void renderSpeciesList() {
-        LinkedHashMap<Integer, Species> list = App.getFilterManager().getSpecies();
+        final SpeciesCatalog catalog = App.getFilterManager().getSpecies();
+        if (catalog.hasCommonNameIndex()) {
+            renderSpeciesList(catalog);
+            return;
+        }
+        // The catalog is indexed when it is loaded, so this is only needed if the locale has
+        // changed since
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                catalog.prepareCommonNameIndex();
+                return null;
+            }
 
-        Species[] species = list.values().toArray(new Species[list.size()]);
+            @Override
+            protected void onPostExecute(Void result) {
+                if (!isFinishing()) {
+                    renderSpeciesList(catalog);
+                }
+            }
+        }.execute();
+    }
 
-        // Sectionize by first letter of common name
-        LinkedHashMap<CharSequence, List<Species>> speciesSections =
-                groupListByKeyFirstLetter(species, Species::getCommonName);
+    private void renderSpeciesList(SpeciesCatalog catalog) {
+        // Sectionized by first letter of common name when the catalog was loaded, so nothing
+        // needs to be sorted here
+        LinkedHashMap<CharSequence, List<Species>> speciesSections = catalog.getCommonNameGroups();
 
         // Bind the custom adapter to the view
         SpeciesAdapter adapter = new SpeciesAdapter(this, speciesSections);
-        Log.d(App.LOG_TAG, list.size() + " species loaded");
+        adapter.setRankedMatches(getString(R.string.species_best_matches), usage::getCount);
+        Log.d(App.LOG_TAG, catalog.size() + " species loaded");
 
         renderList(adapter);
     }
+
+    @Override
+    protected void onListItemClick(ListView l, View v, int position, long id) {
+        //noinspection unchecked
+        Species selection = ((Entry<Species>) l.getItemAtPosition(position)).value;
+        usage.recordPick(selection);
+        super.onListItemClick(l, v, position, id);
+    }
 }
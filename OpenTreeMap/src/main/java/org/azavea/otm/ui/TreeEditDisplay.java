@@ -121,6 +121,12 @@ public class TreeEditDisplay extends TreeDisplay {
         showPositionOnMap();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        releaseTreePhoto();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getMenuInflater();
@@ -155,7 +161,7 @@ public class TreeEditDisplay extends TreeDisplay {
         LayoutInflater layout = this.getLayoutInflater();
 
         // Add all the fields to the display for edit mode
-        for (FieldGroup group : App.getFieldManager().getFieldGroups()) {
+        for (FieldGroup group : App.getFieldManager().getRenderPlan().getEditGroups()) {
             View fieldGroup = group.renderForEdit(layout, plot, TreeEditDisplay.this, fieldList);
             if (fieldGroup != null) {
                 fieldList.addView(fieldGroup);
@@ -252,7 +258,7 @@ public class TreeEditDisplay extends TreeDisplay {
 
         try {
 
-            for (FieldGroup group : App.getFieldManager().getFieldGroups()) {
+            for (FieldGroup group : App.getFieldManager().getRenderPlan().getEditGroups()) {
                 group.update(plot);
             }
 
@@ -317,31 +323,12 @@ public class TreeEditDisplay extends TreeDisplay {
             return;
         }
 
-        RequestGenerator rc = new RequestGenerator();
         try {
-            rc.addTreePhoto(updatedPlot, this.newTreePhoto, new LoggingJsonHttpResponseHandler() {
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    try {
-                        if (response.has("image")) {
-                            updatedPlot.assignNewTreePhoto(response);
-
-                            safeDismiss(saveDialog);
-                            doFinish(updatedPlot, saveDialog);
-
-                        } else {
-                            handlePhotoSaveFailure(null);
-                        }
-                    } catch (JSONException e) {
-                        handlePhotoSaveFailure(e);
-                    }
-                }
-
-                @Override
-                public void failure(Throwable e, String errorResponse) {
-                    handlePhotoSaveFailure(e);
-                }
-            });
+            // The photo is uploaded in the background, so the plot is returned without it
+            App.getPhotoUploadQueue().add(App.getCurrentInstance().getUrlName(),
+                    updatedPlot.getId(), newTreePhoto);
+            newTreePhoto = null;
+            doFinish(updatedPlot, saveDialog);
         } catch (JSONException e) {
             handlePhotoSaveFailure(e);
         }
@@ -390,7 +377,7 @@ public class TreeEditDisplay extends TreeDisplay {
             // based on the keys in the intent data
             case FIELD_ACTIVITY_REQUEST_CODE:
                 if (resultCode == Activity.RESULT_OK) {
-                    for (FieldGroup group : App.getFieldManager().getFieldGroups()) {
+                    for (FieldGroup group : App.getFieldManager().getRenderPlan().getEditGroups()) {
                         group.receiveActivityResult(resultCode, data, this);
                     }
                 }
@@ -398,7 +385,9 @@ public class TreeEditDisplay extends TreeDisplay {
             case TREE_MOVE:
                 if (resultCode == Activity.RESULT_OK) {
                     try {
-                        plot.setData(new JSONObject(data.getStringExtra("plot")));
+                        // Only take the new position, so the move is tracked as an edit to this plot
+                        Plot movedPlot = new Plot(new JSONObject(data.getStringExtra("plot")));
+                        plot.setGeometry(movedPlot.getGeometry());
                     } catch (JSONException e) {
                         Logger.error(e);
                     }
@@ -457,7 +446,17 @@ public class TreeEditDisplay extends TreeDisplay {
         this.newTreePhoto = bm;
     }
 
+    /**
+     * Give the photo's bitmap back to the pool, to decode the next photo into
+     */
+    private void releaseTreePhoto() {
+        App.getBitmapPool().put(newTreePhoto);
+        newTreePhoto = null;
+    }
+
     protected void changePhotoUsingCamera(String filePath) {
+        // The previous photo is replaced, so its bitmap can be reused for this one
+        releaseTreePhoto();
         Bitmap pic = PhotoActivity.getCorrectedCameraBitmap(filePath);
         if (pic != null) {
             submitBitmap(pic);
@@ -465,6 +464,7 @@ public class TreeEditDisplay extends TreeDisplay {
     }
 
     protected void changePhotoUsingGallery(Intent data) {
+        releaseTreePhoto();
         submitBitmap(PhotoActivity.getCorrectedGalleryBitmap(data));
     }
 
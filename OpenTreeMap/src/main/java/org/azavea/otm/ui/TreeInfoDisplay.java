@@ -2,36 +2,36 @@ package org.azavea.otm.ui;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
+import android.widget.ListView;
 import android.widget.Toast;
 
-import com.loopj.android.http.BinaryHttpResponseHandler;
-
 import org.azavea.helpers.Logger;
 import org.azavea.otm.App;
 import org.azavea.otm.R;
+import org.azavea.otm.adapters.FieldListAdapter;
 import org.azavea.otm.data.Plot;
 import org.azavea.otm.data.Tree;
-import org.azavea.otm.fields.EcoField;
-import org.azavea.otm.fields.FieldGroup;
+import org.azavea.otm.fields.FieldDisplayPipeline;
+import org.azavea.otm.images.PhotoUploadQueue;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import cz.msebera.android.httpclient.Header;
+import java.util.Map;
 
 public class TreeInfoDisplay extends TreeDisplay {
     public final static int EDIT_REQUEST = 1;
     ImageView plotImage;
+    private FieldListAdapter fieldAdapter;
+    private PrepareRowsTask prepareRowsTask;
+    private final PhotoUploadQueue.Listener photoUploadListener = this::onPhotoUploaded;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -40,7 +40,21 @@ public class TreeInfoDisplay extends TreeDisplay {
         setContentView(R.layout.plot_view_activity);
         setUpMapIfNeeded();
         plotImage = (ImageView) findViewById(R.id.plot_photo);
+        fieldAdapter = new FieldListAdapter(this);
+        ((ListView) findViewById(R.id.field_list)).setAdapter(fieldAdapter);
         loadPlotInfo();
+
+        // Kept while editing, so a photo saved there is shown once it is uploaded
+        App.getPhotoUploadQueue().addListener(photoUploadListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        App.getPhotoUploadQueue().removeListener(photoUploadListener);
+        if (prepareRowsTask != null) {
+            prepareRowsTask.cancel(false);
+        }
+        super.onDestroy();
     }
 
     @Override
@@ -62,62 +76,63 @@ public class TreeInfoDisplay extends TreeDisplay {
     }
 
     private void loadPlotInfo() {
+        setHeaderValues(plot);
+        showPositionOnMap();
+        showImage(plot);
 
-        try {
-            LinearLayout fieldList = (LinearLayout) findViewById(R.id.field_list);
-            fieldList.removeAllViewsInLayout();
-            LayoutInflater layout = getLayoutInflater();
-
-            setHeaderValues(plot);
-            showPositionOnMap();
-            for (FieldGroup group : App.getFieldManager().getFieldGroups()) {
-                View fieldGroup = group.renderForDisplay(layout, plot, TreeInfoDisplay.this, fieldList);
-                if (fieldGroup != null) {
-                    fieldList.addView(fieldGroup);
-                }
-            }
-
-            // Eco benefit fields are not defined on the instance, but directly
-            // on the plot. Create and render a field group on the fly
-            View ecoFields = createEcoGroup(plot, layout, fieldList);
-            if (ecoFields != null) {
-                fieldList.addView(ecoFields);
-            }
-
-            showImage(plot);
-        } catch (Exception e) {
-            Logger.error("Unable to render tree view", e);
-            Toast.makeText(App.getAppInstance(), "Unable to render view for display", Toast.LENGTH_SHORT).show();
-            finish();
+        if (prepareRowsTask != null) {
+            prepareRowsTask.cancel(false);
         }
-
+        FieldDisplayPipeline pipeline = new FieldDisplayPipeline(
+                App.getFieldManager().getRenderPlan().getDisplayGroups(),
+                App.getFieldManager().getEcoBenefitRows(), getString(R.string.eco_fieldgroup_header));
+        prepareRowsTask = new PrepareRowsTask(pipeline, plot);
+        prepareRowsTask.execute();
     }
 
-    private View createEcoGroup(Plot plot, LayoutInflater layout, ViewGroup parent) {
-
-        FieldGroup ecoGroup = new FieldGroup(getString(R.string.eco_fieldgroup_header));
-        JSONObject benefits = (JSONObject) plot.getField("benefits");
-        if (benefits == null) {
-            return null;
-        }
-        JSONObject eco = benefits.optJSONObject("plot");
-        if (eco == null) {
-            return null;
-        }
-        String[] ecoKeys = App.getFieldManager().getEcoKeys();
-        if (ecoKeys == null) {
-            return null;
+    /**
+     * Formats the field rows for a plot in the background, then binds them on the UI thread.
+     * <p>
+     * The plot is read in the background, so it must not be changed once the task has started.
+     * Changes are made to a copy of the plot instead, which replaces it.
+     */
+    private class PrepareRowsTask extends AsyncTask<Void, Void, FieldDisplayPipeline.Result> {
+        private final FieldDisplayPipeline pipeline;
+        private final Plot plot;
+        private Exception error = null;
+
+        PrepareRowsTask(FieldDisplayPipeline pipeline, Plot plot) {
+            this.pipeline = pipeline;
+            this.plot = plot;
         }
 
-        // Render eco fields based on instance eco field key order
-        for (String key : ecoKeys) {
-            JSONObject ecoField = eco.optJSONObject(key);
-            if (ecoField != null) {
-                ecoGroup.addField(new EcoField(ecoField));
+        @Override
+        protected FieldDisplayPipeline.Result doInBackground(Void... params) {
+            try {
+                return pipeline.prepare(plot);
+            } catch (Exception e) {
+                error = e;
+                return null;
             }
         }
-        return ecoGroup.renderForDisplay(layout, plot, TreeInfoDisplay.this, parent);
 
+        @Override
+        protected void onPostExecute(FieldDisplayPipeline.Result result) {
+            // The plot may have been reloaded while these rows were being prepared
+            if (isFinishing() || this != prepareRowsTask) {
+                return;
+            }
+            if (result == null) {
+                Logger.error("Unable to render tree view", error);
+                Toast.makeText(App.getAppInstance(), "Unable to render view for display", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            fieldAdapter.setRows(TreeInfoDisplay.this.plot, result.rows);
+            for (Map.Entry<String, Long> timing : result.stageTimings.entrySet()) {
+                App.getAppInstance().sendTiming("Tree details", timing.getKey(), timing.getValue() / 1000);
+            }
+        }
     }
 
     private void setHeaderValues(Plot plot) {
@@ -146,18 +161,34 @@ public class TreeInfoDisplay extends TreeDisplay {
         // Default if there is no image returned
         plotImage.setImageResource(R.drawable.missing_tree_photo);
 
-        plot.getTreeThumbnail(new BinaryHttpResponseHandler(Plot.IMAGE_TYPES) {
-            @Override
-            public void onSuccess(int statusCode, Header[] headers, byte[] imageData) {
-                plotImage.setImageBitmap(BitmapFactory.decodeByteArray(imageData, 0, imageData.length));
-            }
+        // Shown right away if the nearby list has already fetched it
+        String url = plot.getThumbnailUrl();
+        if (url != null) {
+            App.getImageLoader().load(url, plotImage);
+        }
+    }
 
-            @Override
-            public void onFailure(int statusCode, Header[] headers, byte[] imageData, Throwable e) {
-                // Log the error, but not important enough to bother the user
-                Logger.error("Could not retrieve tree image", e);
+    /**
+     * Show a photo added to this plot in the background, and pass the updated plot along
+     */
+    private void onPhotoUploaded(int plotId, JSONObject image) {
+        try {
+            if (plot == null || plot.getId() != plotId) {
+                return;
             }
-        });
+            // The field rows may still be being prepared from the plot, so it is copied
+            Plot updated = new Plot(new JSONObject(plot.getData().toString()));
+            updated.assignNewTreePhoto(image);
+            plot = updated;
+        } catch (JSONException e) {
+            Logger.error("Unable to add uploaded photo to plot", e);
+            return;
+        }
+        showImage(plot);
+
+        Intent updatedPlot = new Intent();
+        updatedPlot.putExtra("plot", plot.getData().toString());
+        setResult(TreeDisplay.RESULT_PLOT_EDITED, updatedPlot);
     }
 
     @Override
@@ -212,6 +243,6 @@ public class TreeInfoDisplay extends TreeDisplay {
     }
 
     public void handlePhotoDetailClick(View view) {
-        plot.getTreePhoto(MapHelper.getPhotoDetailHandler(this, plot));
+        MapHelper.showPhotoDetail(this, plot);
     }
 }